@@ -1,23 +1,91 @@
 package chess;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class App {
     public static void main(String[] args) {
+        // --replay [file] checks and replays a collection of games instead of playing one
+        if (args.length > 0 && args[0].equals("--replay")) {
+            BatchReplay.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --uci speaks the Universal Chess Interface on standard input and output, for GUIs and match runners
+        if (args.length > 0 && args[0].equals("--uci")) {
+            new UciEngine(System.in, System.out).run();
+            return;
+        }
         System.out.println("Starting Chess Game");
-        ChessGame game = ChessGame.getInstance();
+        ChessGame game = new ChessGame();
+        configureEngines(game, args);
         game.startGame();
         game.play();
         
         // Test for Piece class
-        // Board board = Board.getInstance();
+        // Board board = new Board();
         // Piece testPiece = new Piece(PieceTypes.KNIGHT, true, 1, 1);
         // System.out.println("Piece Name: " + testPiece.getName()); // Expected: Knight
         // System.out.println("Piece Color: " + testPiece.getColor()); // Expected: White
         // testPiece.setPosition(2, 1);
         // System.out.println("Piece Position: " + testPiece.getPosition()); // Expected: (2, 1)
         // System.out.println("Possible Moves: ");
-        // for (boolean[] move : testPiece.getPossibleMoves(board.getBoard(), true, true)) {
+        // for (boolean[] move : testPiece.getPossibleMoves(board, true, true)) {
         //     System.out.println(Arrays.toString(move));
         // }
 
     }
+
+    // --white-engine / --black-engine hand a side to the engine, limited by --depth, --nodes or --movetime;
+    // --hash sets the transposition table size in MB and --threads the number of search threads;
+    // --book gives the engine an opening book built by OpeningBookBuilder and --tablebases a directory of
+    // endgame tables built by TablebaseGenerator; --headless plays without drawing the board
+    private static void configureEngines(ChessGame game, String[] args) {
+        boolean white = false;
+        boolean black = false;
+        int depth = 0;
+        long nodes = 0;
+        long movetime = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--white-engine" -> white = true;
+                case "--black-engine" -> black = true;
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--nodes" -> nodes = Long.parseLong(args[++i]);
+                case "--movetime" -> movetime = Long.parseLong(args[++i]);
+                case "--hash" -> game.setHashSize(Integer.parseInt(args[++i]));
+                case "--threads" -> game.setThreads(Integer.parseInt(args[++i]));
+                case "--book" -> openBook(game, Path.of(args[++i]));
+                case "--tablebases" -> openTablebases(game, Path.of(args[++i]));
+                case "--headless" -> game.setHeadless(true);
+                default -> System.out.println("Unknown option " + args[i]);
+            }
+        }
+        if (depth == 0 && nodes == 0 && movetime == 0) {
+            depth = 6;
+        }
+        SearchLimits limits = new SearchLimits(depth, nodes, movetime);
+        if (white) {
+            game.setEngine(true, limits);
+        }
+        if (black) {
+            game.setEngine(false, limits);
+        }
+    }
+
+    private static void openBook(ChessGame game, Path path) {
+        try {
+            game.setBook(new OpeningBook(path));
+        } catch (IOException e) {
+            System.out.println("Could not open the opening book " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static void openTablebases(ChessGame game, Path directory) {
+        try {
+            game.setTablebase(new Tablebase(directory));
+        } catch (IOException e) {
+            System.out.println("Could not open the tablebases in " + directory + ": " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,227 @@
+package chess;
+
+public final class Attacks {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT_OFFSETS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_OFFSETS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] WHITE_PAWN_OFFSETS = {{1, -1}, {1, 1}};
+    private static final int[][] BLACK_PAWN_OFFSETS = {{-1, -1}, {-1, 1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    // Indexed by color (0 = white, 1 = black) and then by square
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    // Squares strictly between two squares on a shared rank, file or diagonal, and the whole line through them
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINE = new long[64 * 64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    // Magic multipliers found offline by random search; each maps every relevant occupancy of
+    // its square to a table slot without destructive collisions
+    private static final long[] ROOK_MAGICS = {
+        0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+        0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+        0x0400800040008021L, 0x0400400020005000L, 0x8240801000200080L, 0x8611001004200900L,
+        0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+        0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+        0x0001818014000800L, 0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+        0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+        0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+        0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+        0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L, 0x1240800040800100L,
+        0x0880042000524004L, 0x02C080410206002CL, 0x0801200241050010L, 0x8400080010008080L,
+        0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+        0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+        0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+        0x8044110480002441L, 0x2008110084402202L, 0x90806005090010C1L, 0x000420310A004A42L,
+        0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+        0x0045010808008680L, 0x2002080204004898L, 0x0210009A10400006L, 0x0824050200810200L,
+        0x0006061105004090L, 0x00010108C0000000L, 0x0814040282104004L, 0x0012012201106800L,
+        0x10823014100C1040L, 0x0080C2088802808CL, 0x0281108410404000L, 0x0101212041826200L,
+        0x0020141028221058L, 0x2201020202200202L, 0x000082A801482000L, 0x0000008401411044L,
+        0x0007103014300404L, 0x0002091110010100L, 0x42140012040C0808L, 0x0800808802004020L,
+        0x90C4004210140000L, 0x0800200900A01000L, 0x00D0400201108810L, 0x80820183814412A0L,
+        0x00A01008202202B4L, 0x01C2021A09500402L, 0x0084440208042400L, 0x800400400C090100L,
+        0xBA10040010802100L, 0xD182009006005000L, 0x5011021001009004L, 0x0020420200510400L,
+        0x0292104000468800L, 0x00043009091C0500L, 0x0280441000020025L, 0x0042820080080080L,
+        0x0440101010010040L, 0x1000900100808080L, 0x0108108120089800L, 0x0044010200012682L,
+        0xC002500420900400L, 0x0040482210710800L, 0x0002060024000200L, 0x0281020A44000800L,
+        0xA0021200A4000200L, 0x0001301000840840L, 0x2868500108444220L, 0x0004111041000200L,
+        0x8044020842080200L, 0x0000220104210200L, 0x0000021201044000L, 0x0000280884040028L,
+        0x4012114010858003L, 0x0000081004082B88L, 0x3892700508208002L, 0x00220A041B060400L,
+        0x0812020284014881L, 0x010434A282103100L, 0x0490400824020800L, 0x4A20002C00208800L,
+        0x000000A011020200L, 0x4002940A02482202L, 0x5100100202140406L, 0x02102000840540C1L
+    };
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = leaperAttacks(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = leaperAttacks(square, KING_OFFSETS);
+            PAWN_ATTACKS[0][square] = leaperAttacks(square, WHITE_PAWN_OFFSETS);
+            PAWN_ATTACKS[1][square] = leaperAttacks(square, BLACK_PAWN_OFFSETS);
+        }
+        ROOK_TABLE = initSlider(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = initSlider(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long ends = Bitboards.bit(a) | Bitboards.bit(b);
+                if (Bitboards.isSet(rook(a, 0L), b)) {
+                    BETWEEN[a * 64 + b] = rook(a, Bitboards.bit(b)) & rook(b, Bitboards.bit(a));
+                    LINE[a * 64 + b] = (rook(a, 0L) & rook(b, 0L)) | ends;
+                } else if (Bitboards.isSet(bishop(a, 0L), b)) {
+                    BETWEEN[a * 64 + b] = bishop(a, Bitboards.bit(b)) & bishop(b, Bitboards.bit(a));
+                    LINE[a * 64 + b] = (bishop(a, 0L) & bishop(b, 0L)) | ends;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long king(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawn(int square, boolean isWhite) {
+        return PAWN_ATTACKS[isWhite ? 0 : 1][square];
+    }
+
+    // Every square attacked by a set of pawns of one colour
+    public static long pawns(long pawns, boolean isWhite) {
+        if (isWhite) {
+            return ((pawns << 7) & ~Bitboards.FILE_H) | ((pawns << 9) & ~Bitboards.FILE_A);
+        }
+        return ((pawns >>> 9) & ~Bitboards.FILE_H) | ((pawns >>> 7) & ~Bitboards.FILE_A);
+    }
+
+    // Every square attacked by a set of knights
+    public static long knights(long knights) {
+        long oneLeft = (knights >>> 1) & ~Bitboards.FILE_H;
+        long twoLeft = (knights >>> 2) & ~(Bitboards.FILE_G | Bitboards.FILE_H);
+        long oneRight = (knights << 1) & ~Bitboards.FILE_A;
+        long twoRight = (knights << 2) & ~(Bitboards.FILE_A | Bitboards.FILE_B);
+        long one = oneLeft | oneRight;
+        long two = twoLeft | twoRight;
+        return (one << 16) | (one >>> 16) | (two << 8) | (two >>> 8);
+    }
+
+    // Squares strictly between a and b, or 0 when they do not share a line
+    public static long between(int a, int b) {
+        return BETWEEN[a * 64 + b];
+    }
+
+    // Every square of the rank, file or diagonal through a and b, or 0 when they do not share one
+    public static long line(int a, int b) {
+        return LINE[a * 64 + b];
+    }
+
+    public static long rook(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    public static long bishop(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    private static long[] initSlider(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantOccupancy(square, directions);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[size];
+        boolean[] filled = new boolean[size];
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            // Enumerate every subset of the mask (Carry-Rippler)
+            long subset = 0;
+            do {
+                int slot = offsets[square] + (int) ((subset * magics[square]) >>> shifts[square]);
+                long attacks = slidingAttacks(square, subset, directions);
+                if (filled[slot] && table[slot] != attacks) {
+                    throw new IllegalStateException("Bad magic for square " + square);
+                }
+                table[slot] = attacks;
+                filled[slot] = true;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+        return table;
+    }
+
+    private static long leaperAttacks(int square, int[][] offsets) {
+        long attacks = 0;
+        for (int[] offset : offsets) {
+            int x = Bitboards.rank(square) + offset[0];
+            int y = Bitboards.file(square) + offset[1];
+            if (Bitboards.isOnBoard(x, y)) {
+                attacks |= Bitboards.bit(Bitboards.square(x, y));
+            }
+        }
+        return attacks;
+    }
+
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int x = Bitboards.rank(square) + direction[0];
+            int y = Bitboards.file(square) + direction[1];
+            // The last square of each ray never blocks anything behind it, so it is left out
+            while (Bitboards.isOnBoard(x + direction[0], y + direction[1])) {
+                mask |= Bitboards.bit(Bitboards.square(x, y));
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int x = Bitboards.rank(square) + direction[0];
+            int y = Bitboards.file(square) + direction[1];
+            while (Bitboards.isOnBoard(x, y)) {
+                int target = Bitboards.square(x, y);
+                attacks |= Bitboards.bit(target);
+                if (Bitboards.isSet(occupied, target)) {
+                    break;
+                }
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
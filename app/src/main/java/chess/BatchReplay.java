@@ -0,0 +1,265 @@
+package chess;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Checks and replays whole collections of games without drawing anything, printing one line per game
+ * with its result and why it ended. Input is either PGN or one game per line, moves separated by spaces
+ * in SAN or coordinate form ("e2e4", "e7e8q"), with optional move numbers and a trailing result. Files
+ * are memory-mapped; standard input is read into memory first.
+ */
+public final class BatchReplay {
+
+    private final PrintStream out;
+    private final Board board = new Board();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final ByteSequence token = new ByteSequence();
+    private final StringBuilder line = new StringBuilder(128);
+    // The move text that stopped the current game, empty while every move has been legal
+    private final StringBuilder illegal = new StringBuilder();
+    // The FEN tag of the current game when it is not a valid position
+    private final StringBuilder invalidFen = new StringBuilder();
+    private int gamePlies;
+
+    private long games;
+    private long plies;
+    private long illegalGames;
+    private long whiteWins;
+    private long blackWins;
+    private long draws;
+
+    private final PgnReader.Visitor visitor = new PgnReader.Visitor() {
+        @Override
+        public void move(Board board, int move) {
+            gamePlies++;
+        }
+
+        @Override
+        public void illegalMove(Board board, CharSequence san) {
+            illegal.append(san);
+        }
+
+        @Override
+        public void invalidFen(CharSequence fen) {
+            invalidFen.append(fen);
+        }
+
+        @Override
+        public void end(Board board, CharSequence result) {
+            finishGame(board, result);
+        }
+    };
+
+    public BatchReplay(PrintStream out) {
+        this.out = out;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    // Half-moves played over all games, illegal ones not included
+    public long getPlies() {
+        return plies;
+    }
+
+    public long getIllegalGames() {
+        return illegalGames;
+    }
+
+    public void replay(Path path) throws IOException {
+        try (Arena arena = Arena.ofConfined(); FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        }
+    }
+
+    public void replay(InputStream in) throws IOException {
+        replay(MemorySegment.ofArray(in.readAllBytes()));
+    }
+
+    // PGN when the first thing in the input is a tag, otherwise one game per line
+    public void replay(MemorySegment data) {
+        long position = 0;
+        while (position < data.byteSize() && isWhitespace(byteAt(data, position))) {
+            position++;
+        }
+        if (position < data.byteSize() && byteAt(data, position) == '[') {
+            try (PgnReader reader = new PgnReader(data)) {
+                while (reader.readGame(visitor)) {
+                    // Each game is reported by the visitor as it ends
+                }
+            }
+            return;
+        }
+        while (position < data.byteSize()) {
+            long end = position;
+            while (end < data.byteSize() && byteAt(data, end) != '\n') {
+                end++;
+            }
+            replayLine(data, position, end);
+            position = end + 1;
+        }
+    }
+
+    private void replayLine(MemorySegment data, long start, long end) {
+        board.resetBoard();
+        CharSequence result = "*";
+        boolean empty = true;
+        long position = start;
+        while (true) {
+            while (position < end && isWhitespace(byteAt(data, position))) {
+                position++;
+            }
+            if (position >= end) {
+                break;
+            }
+            long tokenStart = position;
+            while (position < end && !isWhitespace(byteAt(data, position))) {
+                position++;
+            }
+            empty = false;
+            token.set(data, tokenStart, (int) (position - tokenStart));
+            if (PgnReader.isResult(token)) {
+                result = token;
+                break;
+            }
+            int skip = moveNumberLength(token);
+            if (skip == token.length()) {
+                continue;
+            }
+            CharSequence text = token.set(data, tokenStart + skip, token.length() - skip);
+            int move = MoveParser.parse(board, text, moves);
+            if (move == Move.NONE) {
+                illegal.append(text);
+                break;
+            }
+            board.playMove(move);
+            gamePlies++;
+        }
+        // Blank lines separate nothing and are not games
+        if (!empty) {
+            finishGame(board, result);
+        }
+    }
+
+    private void finishGame(Board board, CharSequence recorded) {
+        report(board, recorded);
+        gamePlies = 0;
+        illegal.setLength(0);
+        invalidFen.setLength(0);
+    }
+
+    private void report(Board board, CharSequence recorded) {
+        games++;
+        plies += gamePlies;
+        line.setLength(0);
+        line.append(games).append(' ');
+        if (invalidFen.length() > 0) {
+            illegalGames++;
+            line.append("invalid FEN ").append(invalidFen);
+            out.println(line);
+            return;
+        }
+        if (illegal.length() > 0) {
+            illegalGames++;
+            line.append("illegal move ").append(illegal).append(" at ply ").append(gamePlies + 1);
+            out.println(line);
+            return;
+        }
+
+        String result = null;
+        String reason = null;
+        if (board.isCheckmate()) {
+            result = board.isWhiteToMove() ? "0-1" : "1-0";
+            reason = "checkmate";
+        } else if (board.isStalemate()) {
+            reason = "stalemate";
+        } else if (board.isInsufficientMaterial()) {
+            reason = "insufficient material";
+        } else if (board.getHalfMoveClock() >= 100) {
+            reason = "50-move rule";
+        } else if (board.isThreefoldRepetition()) {
+            reason = "threefold repetition";
+        }
+        if (reason != null && result == null) {
+            result = "1/2-1/2";
+        }
+        line.append(result != null ? result : recorded);
+        if (reason != null) {
+            line.append(' ').append(reason);
+        }
+        if (result != null && !"*".contentEquals(recorded) && !result.contentEquals(recorded)) {
+            line.append(" (recorded ").append(recorded).append(')');
+        }
+        line.append(", ").append(gamePlies).append(" plies");
+        out.println(line);
+
+        String counted = result != null ? result : recorded.toString();
+        switch (counted) {
+            case "1-0" -> whiteWins++;
+            case "0-1" -> blackWins++;
+            case "1/2-1/2" -> draws++;
+            default -> {
+            }
+        }
+    }
+
+    public void printSummary(long elapsedNanos) {
+        long elapsed = Math.max(1, elapsedNanos);
+        out.printf("%d games, %d moves in %.1f ms: %d games/s, %d moves/s%n", games, plies, elapsed / 1e6,
+                games * 1_000_000_000L / elapsed, plies * 1_000_000_000L / elapsed);
+        out.printf("1-0 %d, 0-1 %d, 1/2-1/2 %d, unfinished %d, illegal %d%n", whiteWins, blackWins, draws,
+                games - whiteWins - blackWins - draws - illegalGames, illegalGames);
+    }
+
+    // Replays the file named by the argument, or standard input when there is none or it is "-"
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        BatchReplay replay = new BatchReplay(out);
+        long start = System.nanoTime();
+        try {
+            if (args.length == 0 || args[0].equals("-")) {
+                replay.replay(System.in);
+            } else {
+                replay.replay(Path.of(args[0]));
+            }
+        } catch (IOException e) {
+            out.println("Could not read the games: " + e.getMessage());
+        }
+        replay.printSummary(System.nanoTime() - start);
+        out.flush();
+    }
+
+    // Length of a leading "12." or "12...", or 0 when the token does not start with a move number
+    private static int moveNumberLength(CharSequence text) {
+        int i = 0;
+        while (i < text.length() && Character.isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == text.length() || text.charAt(i) != '.') {
+            // Castling written with zeros also starts with a digit
+            return i == text.length() ? i : 0;
+        }
+        while (i < text.length() && text.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    private static char byteAt(MemorySegment data, long position) {
+        return (char) (data.get(ValueLayout.JAVA_BYTE, position) & 0xFF);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
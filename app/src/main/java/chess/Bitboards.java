@@ -0,0 +1,62 @@
+package chess;
+
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    private Bitboards() {
+    }
+
+    // Squares are numbered rank * 8 + file, so a1 = 0, h1 = 7 and h8 = 63
+    public static int square(int x, int y) {
+        return x * 8 + y;
+    }
+
+    public static int rank(int square) {
+        return square >>> 3;
+    }
+
+    public static int file(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean isSet(long bitboard, int square) {
+        return (bitboard & (1L << square)) != 0;
+    }
+
+    public static boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8;
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static long popFirst(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    public static boolean[][] toGrid(long bitboard) {
+        boolean[][] grid = new boolean[8][8];
+        while (bitboard != 0) {
+            int square = first(bitboard);
+            grid[rank(square)][file(square)] = true;
+            bitboard = popFirst(bitboard);
+        }
+        return grid;
+    }
+}
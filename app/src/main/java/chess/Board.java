@@ -1,94 +1,490 @@
 package chess;
 
-import java.awt.Point;
+import java.util.Arrays;
 
 public final class Board {
-    private static Board instance;
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
 
-    private Piece[][] board;
+    // Pieces are indexed as type ordinal + 6 for black, so index 12 is an empty square
+    static final int EMPTY = 12;
 
-    private Point whiteKing;
-    private Point blackKing;
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(0, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(0, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(0, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(7, 0)] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(7, 7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(7, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    // Deepest line of moves that can be made before they have to be unmade again. Played moves
+    // clear the stack, so this only has to cover a search line, and it keeps idle sessions small.
+    public static final int MAX_PLY = 256;
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final byte[] squares = new byte[64];
+    // Pieces of each index on the board, kept up to date as pieces are placed and removed
+    private final int[] pieceCounts = new int[12];
+    // Squares attacked by each colour, and by the bishop, rook or queen on each square. A move only notes
+    // the squares it changed; a colour's map is brought up to date when it is next asked for, recomputing
+    // just the sliders whose rays cross those squares, so check and king-safety queries are a bit test.
+    private final long[] attackMaps = new long[2];
+    private final long[] sliderAttacks = new long[64];
+    // Squares changed since each colour's map was last updated, and whether that colour's own pieces moved
+    private final long[] changedSquares = new long[2];
+    private int movedColors;
+    // Attack state each move started from, and the slider attacks replaced since, for unmakeMove to put back
+    private final long[] savedState = new long[4 * MAX_PLY];
+    private final int[] savedStart = new int[MAX_PLY];
+    private long[] savedAttacks = new long[256];
+    private byte[] savedSquares = new byte[256];
+    private int savedSize;
+
+    private boolean whiteToMove = true;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfMoveClock;
+    private int fullMoveNumber = 1;
+    private long key;
+    private int lastMove = Move.NONE;
     private boolean blackWon = false;
     private boolean whiteWon = false;
 
-    public static Board getInstance() {
-        if (instance == null) {
-            instance = new Board();
+    // Each entry packs the move, captured piece, castling rights, en passant square and clock
+    private final long[] undoStack = new long[MAX_PLY];
+    private final long[] keyStack = new long[MAX_PLY];
+    private int undoSize;
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    private final RepetitionDetector repetitions = new RepetitionDetector();
+
+    public Board() {
+        setBoardZero();
+    }
+
+    // A separate board for another thread to search on, starting from this position
+    public Board copy() {
+        Board board = new Board();
+        board.copyFrom(this);
+        return board;
+    }
+
+    public void copyFrom(Board other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        System.arraycopy(other.pieceCounts, 0, pieceCounts, 0, pieceCounts.length);
+        occupied = other.occupied;
+        System.arraycopy(other.attackMaps, 0, attackMaps, 0, attackMaps.length);
+        System.arraycopy(other.sliderAttacks, 0, sliderAttacks, 0, sliderAttacks.length);
+        System.arraycopy(other.changedSquares, 0, changedSquares, 0, changedSquares.length);
+        movedColors = other.movedColors;
+        System.arraycopy(other.savedState, 0, savedState, 0, 4 * other.undoSize);
+        System.arraycopy(other.savedStart, 0, savedStart, 0, other.undoSize);
+        if (savedAttacks.length < other.savedSize) {
+            savedAttacks = new long[other.savedAttacks.length];
+            savedSquares = new byte[other.savedSquares.length];
         }
-        return instance;
+        System.arraycopy(other.savedAttacks, 0, savedAttacks, 0, other.savedSize);
+        System.arraycopy(other.savedSquares, 0, savedSquares, 0, other.savedSize);
+        savedSize = other.savedSize;
+        whiteToMove = other.whiteToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfMoveClock = other.halfMoveClock;
+        fullMoveNumber = other.fullMoveNumber;
+        key = other.key;
+        lastMove = other.lastMove;
+        blackWon = other.blackWon;
+        whiteWon = other.whiteWon;
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.undoSize);
+        System.arraycopy(other.keyStack, 0, keyStack, 0, other.undoSize);
+        undoSize = other.undoSize;
+        repetitions.copyFrom(other.repetitions);
     }
 
-    private Board() {
-        board = new Piece[8][8];
-        setBoardZero();
+    static int pieceIndex(PieceTypes type, boolean isWhite) {
+        return type.ordinal() + (isWhite ? 0 : 6);
     }
 
     public void setBoardZero() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = new Piece(PieceTypes.NONE, true, i, j);
-            }
-        }
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(squares, (byte) EMPTY);
+        Arrays.fill(pieceCounts, 0);
+        occupied = 0L;
+        Arrays.fill(attackMaps, 0L);
+        Arrays.fill(sliderAttacks, 0L);
+        Arrays.fill(changedSquares, 0L);
+        movedColors = 0;
+        savedSize = 0;
+        whiteToMove = true;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfMoveClock = 0;
+        fullMoveNumber = 1;
+        key = 0L;
+        lastMove = Move.NONE;
+        undoSize = 0;
+        repetitions.reset(key);
     }
 
     public void resetBoard() {
-        board[0][0] = new Piece(PieceTypes.ROOK, true, 0, 0);
-        board[0][1] = new Piece(PieceTypes.KNIGHT, true, 0, 1);
-        board[0][2] = new Piece(PieceTypes.BISHOP, true, 0, 2);
-        board[0][3] = new Piece(PieceTypes.QUEEN, true, 0, 3);
-        board[0][4] = new Piece(PieceTypes.KING, true, 0, 4);
-        whiteKing = new Point(0, 4);
-        board[0][5] = new Piece(PieceTypes.BISHOP, true, 0, 5);
-        board[0][6] = new Piece(PieceTypes.KNIGHT, true, 0, 6);
-        board[0][7] = new Piece(PieceTypes.ROOK, true, 0, 7);
+        setBoardZero();
+        PieceTypes[] backRank = {
+            PieceTypes.ROOK, PieceTypes.KNIGHT, PieceTypes.BISHOP, PieceTypes.QUEEN,
+            PieceTypes.KING, PieceTypes.BISHOP, PieceTypes.KNIGHT, PieceTypes.ROOK
+        };
         for (int i = 0; i < 8; i++) {
-            board[1][i] = new Piece(PieceTypes.PAWN, true, 1, i);
+            setPiece(backRank[i], true, 0, i);
+            setPiece(PieceTypes.PAWN, true, 1, i);
+            setPiece(PieceTypes.PAWN, false, 6, i);
+            setPiece(backRank[i], false, 7, i);
         }
-        for (int i = 2; i < 6; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = new Piece(PieceTypes.NONE, false, i, j);
+        setCastlingRights(WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        repetitions.reset(key);
+        blackWon = false;
+        whiteWon = false;
+    }
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static Board fromFen(CharSequence fen) {
+        Board board = new Board();
+        board.loadFen(fen);
+        return board;
+    }
+
+    // Sets up the position straight from the text, without creating any objects along the way
+    public void loadFen(CharSequence fen) {
+        setBoardZero();
+        int length = fen.length();
+        int i = 0;
+        int rank = 7;
+        int file = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw invalidFen(fen);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                PieceTypes type = PieceTypes.fromChar(Character.toUpperCase(c));
+                if (type == PieceTypes.NONE || file > 7) {
+                    throw invalidFen(fen);
+                }
+                putPiece(pieceIndex(type, Character.isUpperCase(c)), Bitboards.square(rank, file++));
+            }
+            if (file > 8) {
+                throw invalidFen(fen);
             }
         }
-        for (int i = 0; i < 8; i++) {
-            board[6][i] = new Piece(PieceTypes.PAWN, false, 6, i);
+        if (rank != 0 || file != 8 || Long.bitCount(pieces[pieceIndex(PieceTypes.KING, true)]) != 1
+                || Long.bitCount(pieces[pieceIndex(PieceTypes.KING, false)]) != 1) {
+            throw invalidFen(fen);
+        }
+
+        i = skipSpaces(fen, i);
+        if (i >= length || fen.charAt(i) != 'w' && fen.charAt(i) != 'b') {
+            throw invalidFen(fen);
+        }
+        if (fen.charAt(i++) == 'b') {
+            whiteToMove = false;
+            key ^= Zobrist.blackToMove();
+        }
+
+        i = skipSpaces(fen, i);
+        int rights = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            switch (fen.charAt(i)) {
+                case 'K' -> rights |= WHITE_KINGSIDE;
+                case 'Q' -> rights |= WHITE_QUEENSIDE;
+                case 'k' -> rights |= BLACK_KINGSIDE;
+                case 'q' -> rights |= BLACK_QUEENSIDE;
+                case '-' -> { }
+                default -> throw invalidFen(fen);
+            }
+        }
+        // A right is only kept while its king and rook still stand where castling moves them from
+        setCastlingRights(rights & homeCastlingRights());
+
+        i = skipSpaces(fen, i);
+        if (i < length && fen.charAt(i) != '-') {
+            if (i + 1 >= length) {
+                throw invalidFen(fen);
+            }
+            int epFile = fen.charAt(i) - 'a';
+            int epRank = fen.charAt(i + 1) - '1';
+            if (epFile < 0 || epFile > 7 || epRank != (whiteToMove ? 5 : 2)) {
+                throw invalidFen(fen);
+            }
+            setEnPassantSquare(Bitboards.square(epRank, epFile));
+            i += 2;
+        } else {
+            i++;
+        }
+
+        // The move counters are optional, as in many EPD-style positions
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            halfMoveClock = 0;
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                halfMoveClock = halfMoveClock * 10 + digit(fen, i);
+            }
+            i = skipSpaces(fen, i);
+            if (i < length) {
+                fullMoveNumber = 0;
+                for (; i < length && fen.charAt(i) != ' '; i++) {
+                    fullMoveNumber = fullMoveNumber * 10 + digit(fen, i);
+                }
+                fullMoveNumber = Math.max(1, fullMoveNumber);
+            }
         }
-        board[7][0] = new Piece(PieceTypes.ROOK, false, 7, 0);
-        board[7][1] = new Piece(PieceTypes.KNIGHT, false, 7, 1);
-        board[7][2] = new Piece(PieceTypes.BISHOP, false, 7, 2);
-        board[7][3] = new Piece(PieceTypes.QUEEN, false, 7, 3);
-        board[7][4] = new Piece(PieceTypes.KING, false, 7, 4);
-        blackKing = new Point(7, 4);
-        board[7][5] = new Piece(PieceTypes.BISHOP, false, 7, 5);
-        board[7][6] = new Piece(PieceTypes.KNIGHT, false, 7, 6);
-        board[7][7] = new Piece(PieceTypes.ROOK, false, 7, 7);
+        repetitions.reset(key);
+        blackWon = false;
+        whiteWon = false;
     }
 
-    public void printBoard() {
-        System.out.println();
-        for (int i = 8 - 1; i >= 0; i--) {
-            System.out.print("|");
-            for (int j = 0; j < 8; j++) {
-                if (board[i][j].getType() == PieceTypes.NONE) {
-                    System.out.print("    |");
-                } else {
-                    System.out.print(" " + board[i][j] + " |");
+    public String toFen() {
+        StringBuilder builder = new StringBuilder(90);
+        appendFen(builder);
+        return builder.toString();
+    }
+
+    public void appendFen(StringBuilder out) {
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = squares[Bitboards.square(rank, file)];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
                 }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char c = PieceTypes.VALUES[piece % 6].toChar();
+                out.append(piece < 6 ? c : Character.toLowerCase(c));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                out.append('/');
             }
-            System.out.println();
         }
+        out.append(whiteToMove ? " w " : " b ");
+        if (castlingRights == 0) {
+            out.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) {
+                out.append('K');
+            }
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) {
+                out.append('Q');
+            }
+            if ((castlingRights & BLACK_KINGSIDE) != 0) {
+                out.append('k');
+            }
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) {
+                out.append('q');
+            }
+        }
+        out.append(' ');
+        if (enPassantSquare < 0) {
+            out.append('-');
+        } else {
+            Move.appendSquare(out, enPassantSquare);
+        }
+        out.append(' ').append(halfMoveClock).append(' ').append(fullMoveNumber);
     }
 
-    public Piece[][] getBoard() {
-        return board;
+    private int homeCastlingRights() {
+        int rights = 0;
+        int whiteKing = pieceIndex(PieceTypes.KING, true);
+        int whiteRook = pieceIndex(PieceTypes.ROOK, true);
+        int blackKing = pieceIndex(PieceTypes.KING, false);
+        int blackRook = pieceIndex(PieceTypes.ROOK, false);
+        if (squares[4] == whiteKing) {
+            rights |= (squares[7] == whiteRook ? WHITE_KINGSIDE : 0) | (squares[0] == whiteRook ? WHITE_QUEENSIDE : 0);
+        }
+        if (squares[60] == blackKing) {
+            rights |= (squares[63] == blackRook ? BLACK_KINGSIDE : 0) | (squares[56] == blackRook ? BLACK_QUEENSIDE : 0);
+        }
+        return rights;
+    }
+
+    private static int skipSpaces(CharSequence fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int digit(CharSequence fen, int i) {
+        char c = fen.charAt(i);
+        if (c < '0' || c > '9') {
+            throw invalidFen(fen);
+        }
+        return c - '0';
+    }
+
+    private static IllegalArgumentException invalidFen(CharSequence fen) {
+        return new IllegalArgumentException("Invalid FEN: " + fen);
+    }
+
+    // One-off drawing; anything that redraws every move should keep its own BoardRenderer
+    public void printBoard() {
+        new BoardRenderer(System.out).render(this);
     }
 
     public Piece getPiece(int x, int y) {
-        return board[x][y];
+        int piece = squares[Bitboards.square(x, y)];
+        if (piece == EMPTY) {
+            return new Piece(PieceTypes.NONE, true, x, y);
+        }
+        return new Piece(PieceTypes.VALUES[piece % 6], piece < 6, x, y);
+    }
+
+    // Piece index on a square: type ordinal, plus 6 for black, or EMPTY
+    int pieceAt(int square) {
+        return squares[square];
+    }
+
+    public PieceTypes getPieceType(int x, int y) {
+        int piece = squares[Bitboards.square(x, y)];
+        return piece == EMPTY ? PieceTypes.NONE : PieceTypes.VALUES[piece % 6];
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return squares[Bitboards.square(x, y)] == EMPTY;
+    }
+
+    public boolean isOccupiedBy(int x, int y, boolean isWhite) {
+        return Bitboards.isSet(colors[isWhite ? 0 : 1], Bitboards.square(x, y));
     }
 
     public void setPiece(PieceTypes pieceType, boolean isWhite, int x, int y) {
-        board[x][y] = new Piece(pieceType, isWhite, x, y);
+        int square = Bitboards.square(x, y);
+        if (squares[square] != EMPTY) {
+            removePiece(square);
+        }
+        if (pieceType != PieceTypes.NONE) {
+            putPiece(pieceIndex(pieceType, isWhite), square);
+        }
+        repetitions.reset(key);
+    }
+
+    public long getPieces(PieceTypes pieceType, boolean isWhite) {
+        return pieces[pieceIndex(pieceType, isWhite)];
+    }
+
+    public int getPieceCount(PieceTypes pieceType, boolean isWhite) {
+        return pieceCounts[pieceIndex(pieceType, isWhite)];
+    }
+
+    // Neither side can ever mate: bare kings, a single minor piece, or only bishops that all stand on
+    // squares of one colour
+    public boolean isInsufficientMaterial() {
+        if (countBoth(PieceTypes.PAWN) + countBoth(PieceTypes.ROOK) + countBoth(PieceTypes.QUEEN) != 0) {
+            return false;
+        }
+        int knights = countBoth(PieceTypes.KNIGHT);
+        int bishops = countBoth(PieceTypes.BISHOP);
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        if (knights != 0) {
+            return false;
+        }
+        long allBishops = getPieces(PieceTypes.BISHOP, true) | getPieces(PieceTypes.BISHOP, false);
+        return (allBishops & Bitboards.LIGHT_SQUARES) == 0 || (allBishops & ~Bitboards.LIGHT_SQUARES) == 0;
+    }
+
+    private int countBoth(PieceTypes pieceType) {
+        return pieceCounts[pieceType.ordinal()] + pieceCounts[pieceType.ordinal() + 6];
+    }
+
+    public long getOccupancy(boolean isWhite) {
+        return colors[isWhite ? 0 : 1];
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public int getKingSquare(boolean isWhite) {
+        return Bitboards.first(pieces[pieceIndex(PieceTypes.KING, isWhite)]);
+    }
+
+    public boolean isSquareAttacked(int square, boolean byWhite) {
+        return Bitboards.isSet(getAttacks(byWhite), square);
+    }
+
+    // Every square attacked by a colour, whether or not it holds a piece
+    public long getAttacks(boolean byWhite) {
+        int color = byWhite ? 0 : 1;
+        if (changedSquares[color] != 0) {
+            updateAttacks(color);
+        }
+        return attackMaps[color];
+    }
+
+    // Zobrist key of the position, kept up to date by every change to the board
+    public long getKey() {
+        return key;
+    }
+
+    long computeKey() {
+        long computed = 0L;
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != EMPTY) {
+                computed ^= Zobrist.piece(squares[square], square);
+            }
+        }
+        computed ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        return whiteToMove ? computed : computed ^ Zobrist.blackToMove();
+    }
+
+    // True once the current position has occurred before since the last irreversible move
+    public boolean isRepetition() {
+        return repetitions.isRepetition();
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitions.isThreefold();
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    public int getFullMoveNumber() {
+        return fullMoveNumber;
     }
 
     public boolean isBlackWon() {
@@ -99,73 +495,318 @@ public final class Board {
         return whiteWon;
     }
 
-    public boolean movePiece(int x1, int y1, int x2, int y2, boolean whiteMove) {
-        boolean move = board[x1][y1].movePiece(board, x2, y2, whiteMove);
-        if (move) {
-            if (board[x1][y1].getType() == PieceTypes.KING) {
-                if (whiteMove) {
-                    whiteKing.setLocation(x2, y2);
-                } else {
-                    blackKing.setLocation(x2, y2);
-                }
+    private void putPiece(int piece, int square) {
+        placePiece(piece, square);
+        markChanged(Bitboards.bit(square), piece);
+    }
+
+    private void removePiece(int square) {
+        markChanged(Bitboards.bit(square), squares[square]);
+        liftPiece(square);
+    }
+
+    private void markChanged(long changed, int piece) {
+        changedSquares[0] |= changed;
+        changedSquares[1] |= changed;
+        movedColors |= piece < 6 ? 1 : 2;
+    }
+
+    // putPiece and removePiece without the attack bookkeeping, for unmakeMove which restores the attacks itself
+    private void placePiece(int piece, int square) {
+        long bit = Bitboards.bit(square);
+        pieces[piece] |= bit;
+        colors[piece < 6 ? 0 : 1] |= bit;
+        occupied |= bit;
+        squares[square] = (byte) piece;
+        pieceCounts[piece]++;
+        key ^= Zobrist.piece(piece, square);
+    }
+
+    private void liftPiece(int square) {
+        int piece = squares[square];
+        long bit = Bitboards.bit(square);
+        pieces[piece] &= ~bit;
+        colors[piece < 6 ? 0 : 1] &= ~bit;
+        occupied &= ~bit;
+        squares[square] = (byte) EMPTY;
+        pieceCounts[piece]--;
+        key ^= Zobrist.piece(piece, square);
+    }
+
+    // Recomputes the colour's sliders that stand on a changed square or whose stored rays reach one (a ray
+    // can only grow or shrink at a square that changed), then its map if anything of it moved. Pawn, knight
+    // and king attacks never depend on other pieces, so they are taken set-wise rather than stored.
+    private void updateAttacks(int color) {
+        long changed = changedSquares[color];
+        int offset = color * 6;
+        boolean moved = (movedColors & (1 << color)) != 0;
+        long sliders = pieces[offset + PieceTypes.BISHOP.ordinal()] | pieces[offset + PieceTypes.ROOK.ordinal()]
+                | pieces[offset + PieceTypes.QUEEN.ordinal()];
+        for (; sliders != 0; sliders &= sliders - 1) {
+            int square = Long.numberOfTrailingZeros(sliders);
+            if (((sliderAttacks[square] | Bitboards.bit(square)) & changed) == 0) {
+                continue;
             }
+            long attacks = switch (PieceTypes.VALUES[squares[square] % 6]) {
+                case BISHOP -> Attacks.bishop(square, occupied);
+                case ROOK -> Attacks.rook(square, occupied);
+                default -> Attacks.queen(square, occupied);
+            };
+            if (attacks != sliderAttacks[square]) {
+                setSliderAttacks(square, attacks);
+                moved = true;
+            }
+        }
+        changedSquares[color] = 0L;
+        movedColors &= ~(1 << color);
+        if (moved) {
+            attackMaps[color] = computeAttackMap(color == 0);
+        }
+    }
+
+    private void setSliderAttacks(int square, long attacks) {
+        // Only attacks replaced during a move need to be put back
+        if (undoSize > 0) {
+            if (savedSize == savedAttacks.length) {
+                savedAttacks = Arrays.copyOf(savedAttacks, savedSize * 2);
+                savedSquares = Arrays.copyOf(savedSquares, savedSize * 2);
+            }
+            savedAttacks[savedSize] = sliderAttacks[square];
+            savedSquares[savedSize++] = (byte) square;
         }
-        return move;
+        sliderAttacks[square] = attacks;
+    }
+
+    private long computeAttackMap(boolean isWhite) {
+        int offset = isWhite ? 0 : 6;
+        long attacks = Attacks.pawns(pieces[offset + PieceTypes.PAWN.ordinal()], isWhite)
+                | Attacks.knights(pieces[offset + PieceTypes.KNIGHT.ordinal()]);
+        for (long kings = pieces[offset + PieceTypes.KING.ordinal()]; kings != 0; kings &= kings - 1) {
+            attacks |= Attacks.king(Long.numberOfTrailingZeros(kings));
+        }
+        long sliders = pieces[offset + PieceTypes.BISHOP.ordinal()] | pieces[offset + PieceTypes.ROOK.ordinal()]
+                | pieces[offset + PieceTypes.QUEEN.ordinal()];
+        for (; sliders != 0; sliders &= sliders - 1) {
+            attacks |= sliderAttacks[Long.numberOfTrailingZeros(sliders)];
+        }
+        return attacks;
+    }
+
+    private void setCastlingRights(int rights) {
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    private void setEnPassantSquare(int square) {
+        key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(square);
+        enPassantSquare = square;
+    }
+
+    private void relocatePiece(int from, int to) {
+        markChanged(Bitboards.bit(from) | Bitboards.bit(to), squares[from]);
+        shiftPiece(from, to);
+    }
+
+    // Moves a piece to an empty square; the counts stay as they are
+    private void shiftPiece(int from, int to) {
+        int piece = squares[from];
+        long bits = Bitboards.bit(from) | Bitboards.bit(to);
+        pieces[piece] ^= bits;
+        colors[piece < 6 ? 0 : 1] ^= bits;
+        occupied ^= bits;
+        squares[from] = (byte) EMPTY;
+        squares[to] = (byte) piece;
+        key ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+    }
+
+    public boolean movePiece(int x1, int y1, int x2, int y2, boolean whiteMove) {
+        int move = findMove(Bitboards.square(x1, y1), Bitboards.square(x2, y2), false);
+        if (move == Move.NONE) {
+            System.out.println("Invalid move");
+            return false;
+        }
+        if (!isOccupiedBy(x1, y1, whiteMove)) {
+            System.out.println("Not your turn");
+            return false;
+        }
+        playMove(move);
+        return true;
     }
 
     public boolean takePiece(int x1, int y1, int x2, int y2, boolean whiteMove) {
-        boolean move = board[x1][y1].takePiece(board, x2, y2, whiteMove);
-        if (move) {
-            if (board[x1][y1].getType() == PieceTypes.KING) {
-                if (whiteMove) {
-                    whiteKing.setLocation(x2, y2);
-                } else {
-                    blackKing.setLocation(x2, y2);
-                }
-            } else if (board[x2][y2].getType() == PieceTypes.KING) {
-                if (whiteMove) {
-                    blackWon = true;
-                } else {
-                    whiteWon = true;
-                }
+        int move = findMove(Bitboards.square(x1, y1), Bitboards.square(x2, y2), true);
+        if (move == Move.NONE) {
+            System.out.println("Invalid move");
+            return false;
+        }
+        if (!isOccupiedBy(x1, y1, whiteMove)) {
+            System.out.println("Not your turn");
+            return false;
+        }
+        if (getPieceType(x2, y2) == PieceTypes.KING) {
+            if (whiteMove) {
+                whiteWon = true;
+            } else {
+                blackWon = true;
             }
         }
-        return move;
+        playMove(move);
+        return true;
     }
 
-    public void setPiecesLocations() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j].setPosition(i, j);
-                if (board[i][j].getType() == PieceTypes.KING) {
-                    if (board[i][j].isWhite()) {
-                        whiteKing.setLocation(i, j);
-                    } else {
-                        blackKing.setLocation(i, j);
-                    }
-                }
+    // Plays a move for good: it cannot be unmade, so the undo stack never fills up over a long game
+    public void playMove(int move) {
+        makeMove(move);
+        undoSize = 0;
+        savedSize = 0;
+        lastMove = move;
+    }
+
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    // Pawns reaching the last rank are promoted to a queen, which is generated first
+    private int findMove(int from, int to, boolean capture) {
+        int piece = squares[from];
+        if (piece == EMPTY) {
+            return Move.NONE;
+        }
+        // The other side's pieces are only looked up to tell the player it is not their turn
+        int count = piece < 6 == whiteToMove ? MoveGenerator.generateLegal(this, moveBuffer)
+                : MoveGenerator.generate(this, piece < 6, moveBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.isCapture(move) == capture) {
+                return move;
             }
         }
+        return Move.NONE;
+    }
+
+    public void makeMove(int move) {
+        if (undoSize == MAX_PLY) {
+            throw new IllegalStateException("Undo stack is full");
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = squares[from];
+        boolean isWhite = piece < 6;
+        int captured = EMPTY;
+
+        long undo = (move & 0xFFFFL) | ((long) castlingRights << 20) | ((long) (enPassantSquare + 1) << 24)
+                | ((long) halfMoveClock << 32);
+
+        keyStack[undoSize] = key;
+        savedStart[undoSize] = savedSize << 2 | movedColors;
+        savedState[4 * undoSize] = attackMaps[0];
+        savedState[4 * undoSize + 1] = attackMaps[1];
+        savedState[4 * undoSize + 2] = changedSquares[0];
+        savedState[4 * undoSize + 3] = changedSquares[1];
+        halfMoveClock++;
+        if (flags == Move.EN_PASSANT) {
+            int capturedSquare = isWhite ? to - 8 : to + 8;
+            captured = squares[capturedSquare];
+            removePiece(capturedSquare);
+        } else if ((flags & Move.CAPTURE) != 0) {
+            captured = squares[to];
+            removePiece(to);
+        }
+        undoStack[undoSize++] = undo | ((long) captured << 16);
+
+        relocatePiece(from, to);
+        if ((flags & Move.PROMOTION) != 0) {
+            removePiece(to);
+            putPiece(pieceIndex(Move.promotionType(move), isWhite), to);
+        } else if (flags == Move.KING_CASTLE) {
+            relocatePiece(to + 1, to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            relocatePiece(to - 2, to + 1);
+        }
+
+        if (piece % 6 == PieceTypes.PAWN.ordinal() || captured != EMPTY) {
+            halfMoveClock = 0;
+        }
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        setEnPassantSquare(flags == Move.DOUBLE_PAWN_PUSH ? (from + to) / 2 : -1);
+        if (!isWhite) {
+            fullMoveNumber++;
+        }
+        if (whiteToMove == isWhite) {
+            whiteToMove = !isWhite;
+            key ^= Zobrist.blackToMove();
+        }
+        repetitions.push(key, halfMoveClock == 0 || castlingRights != (int) ((undo >>> 20) & 0xF));
+    }
+
+    public void unmakeMove() {
+        long undo = undoStack[--undoSize];
+        long previousKey = keyStack[undoSize];
+        int move = (int) (undo & 0xFFFF);
+        int captured = (int) ((undo >>> 16) & 0xF);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        boolean isWhite = !whiteToMove;
+
+        if ((flags & Move.PROMOTION) != 0) {
+            liftPiece(to);
+            placePiece(pieceIndex(PieceTypes.PAWN, isWhite), to);
+        } else if (flags == Move.KING_CASTLE) {
+            shiftPiece(to - 1, to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            shiftPiece(to + 1, to - 2);
+        }
+        shiftPiece(to, from);
+        if (flags == Move.EN_PASSANT) {
+            placePiece(captured, isWhite ? to - 8 : to + 8);
+        } else if (captured != EMPTY) {
+            placePiece(captured, to);
+        }
+        int start = savedStart[undoSize] >>> 2;
+        while (savedSize > start) {
+            savedSize--;
+            sliderAttacks[savedSquares[savedSize]] = savedAttacks[savedSize];
+        }
+        attackMaps[0] = savedState[4 * undoSize];
+        attackMaps[1] = savedState[4 * undoSize + 1];
+        changedSquares[0] = savedState[4 * undoSize + 2];
+        changedSquares[1] = savedState[4 * undoSize + 3];
+        movedColors = savedStart[undoSize] & 3;
+
+        castlingRights = (int) ((undo >>> 20) & 0xF);
+        enPassantSquare = (int) ((undo >>> 24) & 0x7F) - 1;
+        halfMoveClock = (int) (undo >>> 32);
+        if (!isWhite) {
+            fullMoveNumber--;
+        }
+        whiteToMove = isWhite;
+        key = previousKey;
+        repetitions.pop();
+    }
+
+    public boolean isInCheck(boolean isWhite) {
+        return isSquareAttacked(getKingSquare(isWhite), !isWhite);
     }
 
     public boolean[][] getAllMovesByColor(boolean whiteMove) {
-        boolean[][] allMoves = new boolean[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                boolean[][] possibleMoves = board[i][j].getPossibleMoves(board, false, true);
-                for (int k = 0; k < 8; k++) {
-                    for (int l = 0; l < 8; l++) {
-                        allMoves[k][l] = allMoves[k][l] || possibleMoves[k][l];
-                    }
-                }
-            }
+        long allMoves = 0L;
+        long own = colors[whiteMove ? 0 : 1];
+        while (own != 0) {
+            int square = Bitboards.first(own);
+            own = Bitboards.popFirst(own);
+            allMoves |= getPiece(Bitboards.rank(square), Bitboards.file(square)).getPossibleTargets(this, false, true);
         }
-        return allMoves;
+        return Bitboards.toGrid(allMoves);
     }
 
+    // Mate and stalemate are the side to move having no legal move, in check or not
     public boolean isCheckmate() {
-        Point king = MoveLogger.getInstance().getTurn() == 'W' ? whiteKing : blackKing;
+        return isInCheck(whiteToMove) && !MoveGenerator.hasLegalMove(this, moveBuffer);
+    }
 
-        return board[king.x][king.y].isCheckmate(board);
+    public boolean isStalemate() {
+        return !isInCheck(whiteToMove) && !MoveGenerator.hasLegalMove(this, moveBuffer);
     }
 }
@@ -0,0 +1,75 @@
+package chess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Draws the board as text, one row per rank with white at the bottom. The frame layout never changes,
+ * so it is laid out once and each render only rewrites the two characters of every square before the
+ * whole frame goes out in a single write. A headless renderer draws nothing.
+ */
+public final class BoardRenderer {
+
+    private static final byte[] PIECE_CHARS = new byte[13 * 2];
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            PIECE_CHARS[2 * piece] = (byte) (piece < 6 ? 'W' : 'B');
+            PIECE_CHARS[2 * piece + 1] = (byte) PieceTypes.VALUES[piece % 6].toChar();
+        }
+        PIECE_CHARS[2 * Board.EMPTY] = ' ';
+        PIECE_CHARS[2 * Board.EMPTY + 1] = ' ';
+    }
+
+    private final OutputStream out;
+    private final byte[] frame;
+    // Where the two characters of each square start in the frame
+    private final int[] offsets = new int[64];
+
+    public BoardRenderer(OutputStream out) {
+        this.out = out;
+        StringBuilder layout = new StringBuilder(System.lineSeparator());
+        for (int rank = 7; rank >= 0; rank--) {
+            layout.append('|');
+            for (int file = 0; file < 8; file++) {
+                offsets[Bitboards.square(rank, file)] = layout.length() + 1;
+                layout.append("    |");
+            }
+            layout.append(System.lineSeparator());
+        }
+        this.frame = layout.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private BoardRenderer() {
+        this.out = null;
+        this.frame = null;
+    }
+
+    // For batch runs and piped games, where drawing every position would cost more than playing it
+    public static BoardRenderer headless() {
+        return new BoardRenderer();
+    }
+
+    public boolean isHeadless() {
+        return out == null;
+    }
+
+    public void render(Board board) {
+        if (out == null) {
+            return;
+        }
+        for (int square = 0; square < 64; square++) {
+            int piece = board.pieceAt(square);
+            frame[offsets[square]] = PIECE_CHARS[2 * piece];
+            frame[offsets[square] + 1] = PIECE_CHARS[2 * piece + 1];
+        }
+        try {
+            out.write(frame, 0, frame.length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
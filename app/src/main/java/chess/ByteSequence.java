@@ -0,0 +1,56 @@
+package chess;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+// A reusable CharSequence view over single-byte text in a memory segment, so tokens need no copy
+final class ByteSequence implements CharSequence {
+
+    private MemorySegment segment;
+    private long offset;
+    private int length;
+
+    ByteSequence set(MemorySegment segment, long offset, int length) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) (segment.get(ValueLayout.JAVA_BYTE, offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteSequence().set(segment, offset + start, end - start);
+    }
+
+    boolean contentEquals(String text) {
+        if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(this);
+        return builder.toString();
+    }
+}
@@ -1,35 +1,76 @@
 package chess;
 
+import java.io.UncheckedIOException;
+import java.util.Random;
 import java.util.Scanner;
 
 public class ChessGame {
 
-    private static ChessGame instance;
+    private final GameSession session;
+    private final Board board;
+    private final MoveLogger moveLogger;
+    private ParallelSearch search;
+    // Consulted before searching while the game is still in it, or null
+    private OpeningBook book;
+    private final Random random = new Random();
+    // Plays perfectly once few enough pieces are left, or null
+    private Tablebase tablebase;
+    private int hashMegabytes = 64;
+    private int threads = ParallelSearch.defaultThreads();
+    // Search limits for the side the engine plays, or null when a human plays it
+    private SearchLimits whiteEngine;
+    private SearchLimits blackEngine;
+    private BoardRenderer renderer = new BoardRenderer(System.out);
 
-    public static ChessGame getInstance() {
-        if (instance == null) {
-            instance = new ChessGame();
+    public ChessGame() {
+        this(new GameSession(1, openJournal()));
+    }
+
+    public ChessGame(GameSession session) {
+        this.session = session;
+        this.board = session.getBoard();
+        this.moveLogger = session.getMoveLogger();
+    }
+
+    public GameSession getSession() {
+        return session;
+    }
+
+    public void setEngine(boolean white, SearchLimits limits) {
+        if (white) {
+            this.whiteEngine = limits;
+        } else {
+            this.blackEngine = limits;
         }
-        return instance;
     }
 
-    private Board board;
-    private MoveLogger moveLogger;
-    private String moveRegex = "[a-h][1-8][a-h][1-8]";
-    private String takeRegex = "[a-h][1-8]x[a-h][1-8]";
-    private String castlingRegex = "O-O|O-O-O";
+    public void setHashSize(int megabytes) {
+        this.hashMegabytes = megabytes;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
 
-    private ChessGame() {
-        this.board = Board.getInstance();
-        this.moveLogger = MoveLogger.getInstance();
+    // Headless games still print moves and results, just never the board
+    public void setHeadless(boolean headless) {
+        this.renderer = headless ? BoardRenderer.headless() : new BoardRenderer(System.out);
     }
 
     private void print() {
-        this.board.printBoard();
+        this.renderer.render(this.board);
     }
 
     public void startGame() {
-        this.board.resetBoard();
+        this.session.start();
         // this.board.setBoardZero();
         // this.board.setPiece(PieceTypes.KING, true, 0, 4);
         // this.board.setPiece(PieceTypes.KING, false, 7, 4);
@@ -37,64 +78,100 @@ public class ChessGame {
         // this.board.setPiece(PieceTypes.ROOK, true, 0, 7);
         // this.board.setPiece(PieceTypes.ROOK, false, 7, 0);
         // this.board.setPiece(PieceTypes.ROOK, false, 7, 7);
-        this.board.setPiecesLocations();
-        this.moveLogger.reset();
         this.print();
     }
 
-    public boolean movePiece(String move) {
-        if (move.matches(castlingRegex)) {
-            return handleCastling(move);
-        }
-
-        int y1 = move.charAt(0) - 'a';
-        int x1 = move.charAt(1) - '1';
-        int y2;
-        int x2;
-        if (move.charAt(2) == 'x') {
-            y2 = move.charAt(3) - 'a';
-            x2 = move.charAt(4) - '1';
-            return this.board.takePiece(x1, y1, x2, y2, this.moveLogger.getTurn() == 'W');
-        } else {
-            y2 = move.charAt(2) - 'a';
-            x2 = move.charAt(3) - '1';
-            return this.board.movePiece(x1, y1, x2, y2, this.moveLogger.getTurn() == 'W');
-        }
-    }
-
-    private boolean handleCastling(String move) {
-        int row = this.moveLogger.getTurn() == 'W' ? 0 : 7;
-        if (move.equals("O-O")) {
-            return this.board.movePiece(row, 4, row, 6, this.moveLogger.getTurn() == 'W');
-        } else if (move.equals("O-O-O")) {
-            return this.board.movePiece(row, 4, row, 2, this.moveLogger.getTurn() == 'W');
-        }
-        return false;
-    }
-
     public void play() {
         Scanner scanner = new Scanner(System.in);
         while (!this.board.isBlackWon() && !this.board.isWhiteWon()) {
-            if (MoveLogger.getInstance().isDraw()) {
-                System.out.println("Game drawn by " + MoveLogger.getInstance().getDrawReason());
+            if (this.board.isCheckmate()) {
+                System.out.println("Checkmate, " + (this.session.isWhiteToMove() ? "Black" : "White") + " wins");
                 break;
             }
-            System.out.println((this.moveLogger.getTurn() == 'W' ? "White" : "Black") + ", Enter your move: ");
-            String move = scanner.nextLine();
-            if (move.equals("exit")) {
+            if (this.moveLogger.isDraw()) {
+                System.out.println("Game drawn by " + this.moveLogger.getDrawReason());
                 break;
             }
-            if (!move.matches(this.moveRegex) && !move.matches(this.takeRegex) && !move.matches(this.castlingRegex)) {
-                System.out.println("Invalid move. Try again.");
+            SearchLimits engine = this.session.isWhiteToMove() ? this.whiteEngine : this.blackEngine;
+            if (engine != null) {
+                if (!playEngineMove(engine)) {
+                    break;
+                }
                 continue;
             }
-            if (movePiece(move)) {
-                this.moveLogger.logMove(move);
-                this.board.setPiecesLocations();
+            System.out.println((this.session.isWhiteToMove() ? "White" : "Black") + ", Enter your move: ");
+            if (!scanner.hasNextLine()) {
+                break;
+            }
+            String move = scanner.nextLine();
+            if (move.equals("exit")) {
+                break;
+            }
+            if (this.session.makeMove(move)) {
                 this.print();
             } else {
                 System.out.println("Invalid move. Try again.");
             }
         }
+        // Make sure the game is on disk before the program exits
+        this.session.endGame().join();
+    }
+
+    // Games are recorded in the default archive; without it the game is still playable
+    private static MoveJournal openJournal() {
+        try {
+            return SessionRegistry.openDefaultJournal();
+        } catch (UncheckedIOException e) {
+            System.out.println("An error occurred while opening the game archive.");
+            return null;
+        }
+    }
+
+    private boolean playEngineMove(SearchLimits limits) {
+        int knownMove = this.book == null ? Move.NONE : this.book.pickMove(this.board, this.random);
+        String source = "book";
+        if (knownMove == Move.NONE && this.tablebase != null) {
+            knownMove = this.tablebase.bestMove(this.board);
+            source = "tablebase, " + describe(this.tablebase.probeWdl(this.board), this.tablebase.probeDtm(this.board));
+        }
+        if (knownMove != Move.NONE) {
+            String move = GameSession.toNotation(knownMove);
+            System.out.println((this.session.isWhiteToMove() ? "White" : "Black") + " plays " + move + " (" + source + ")");
+            if (!this.session.makeMove(move)) {
+                return false;
+            }
+            this.print();
+            return true;
+        }
+        if (this.search == null) {
+            this.search = new ParallelSearch(this.board, new TranspositionTable(this.hashMegabytes), this.threads);
+            this.search.setTablebase(this.tablebase);
+        }
+        SearchResult result = this.search.search(limits);
+        boolean white = this.session.isWhiteToMove();
+        if (result.getBestMove() == Move.NONE) {
+            System.out.println(this.board.isInCheck(white) ? "Checkmate, " + (white ? "Black" : "White") + " wins" : "Stalemate");
+            return false;
+        }
+        String move = GameSession.toNotation(result.getBestMove());
+        System.out.println((white ? "White" : "Black") + " plays " + move + " (" + result + ")");
+        StringBuilder timeToDepth = new StringBuilder("Time to depth:");
+        for (int depth = 1; depth <= result.getDepth(); depth++) {
+            timeToDepth.append(' ').append(depth).append('=').append(result.getTimeToDepth(depth) / 1_000_000).append("ms");
+        }
+        System.out.println(timeToDepth);
+        if (!this.session.makeMove(move)) {
+            return false;
+        }
+        this.print();
+        return true;
+    }
+
+    private static String describe(int wdl, int plies) {
+        return switch (wdl) {
+            case Tablebase.WIN -> "mate in " + (plies + 1) / 2;
+            case Tablebase.LOSS -> "mated in " + plies / 2;
+            default -> "draw";
+        };
     }
 }
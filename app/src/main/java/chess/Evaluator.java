@@ -0,0 +1,116 @@
+package chess;
+
+public final class Evaluator {
+
+    // Indexed by PieceTypes ordinal: pawn, rook, knight, bishop, queen, king
+    static final int[] PIECE_VALUES = {100, 500, 320, 330, 900, 0};
+    private static final int[] PHASE_WEIGHTS = {0, 2, 1, 1, 4, 0};
+    private static final int TOTAL_PHASE = 24;
+
+    // Piece-square tables from white's point of view, written with rank 8 on top
+    private static final int[] PAWN_TABLE = {
+        0, 0, 0, 0, 0, 0, 0, 0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+        5, 5, 10, 25, 25, 10, 5, 5,
+        0, 0, 0, 20, 20, 0, 0, 0,
+        5, -5, -10, 0, 0, -10, -5, 5,
+        5, 10, 10, -20, -20, 10, 10, 5,
+        0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] ROOK_TABLE = {
+        0, 0, 0, 0, 0, 0, 0, 0,
+        5, 10, 10, 10, 10, 10, 10, 5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        -5, 0, 0, 0, 0, 0, 0, -5,
+        0, 0, 0, 5, 5, 0, 0, 0
+    };
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20, 0, 0, 0, 0, -20, -40,
+        -30, 0, 10, 15, 15, 10, 0, -30,
+        -30, 5, 15, 20, 20, 15, 5, -30,
+        -30, 0, 15, 20, 20, 15, 0, -30,
+        -30, 5, 10, 15, 15, 10, 5, -30,
+        -40, -20, 0, 5, 5, 0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10, 0, 0, 0, 0, 0, 0, -10,
+        -10, 0, 5, 10, 10, 5, 0, -10,
+        -10, 5, 5, 10, 10, 5, 5, -10,
+        -10, 0, 10, 10, 10, 10, 0, -10,
+        -10, 10, 10, 10, 10, 10, 10, -10,
+        -10, 5, 0, 0, 0, 0, 5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10, -5, -5, -10, -10, -20,
+        -10, 0, 0, 0, 0, 0, 0, -10,
+        -10, 0, 5, 5, 5, 5, 0, -10,
+        -5, 0, 5, 5, 5, 5, 0, -5,
+        0, 0, 5, 5, 5, 5, 0, -5,
+        -10, 5, 5, 5, 5, 5, 0, -10,
+        -10, 0, 5, 0, 0, 0, 0, -10,
+        -20, -10, -10, -5, -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+        20, 20, 0, 0, 0, 0, 20, 20,
+        20, 30, 10, 0, 0, 10, 30, 20
+    };
+    private static final int[] KING_ENDGAME_TABLE = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10, 0, 0, -10, -20, -30,
+        -30, -10, 20, 30, 30, 20, -10, -30,
+        -30, -10, 30, 40, 40, 30, -10, -30,
+        -30, -10, 30, 40, 40, 30, -10, -30,
+        -30, -10, 20, 30, 30, 20, -10, -30,
+        -30, -30, 0, 0, 0, 0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[][] TABLES = {PAWN_TABLE, ROOK_TABLE, KNIGHT_TABLE, BISHOP_TABLE, QUEEN_TABLE};
+
+    private Evaluator() {
+    }
+
+    // Static evaluation in centipawns from the point of view of the side to move
+    public static int evaluate(Board board) {
+        int score = 0;
+        int phase = 0;
+        for (int type = 0; type < 5; type++) {
+            long white = board.getPieces(PieceTypes.VALUES[type], true);
+            long black = board.getPieces(PieceTypes.VALUES[type], false);
+            phase += PHASE_WEIGHTS[type] * Long.bitCount(white | black);
+            score += PIECE_VALUES[type] * (Long.bitCount(white) - Long.bitCount(black));
+            int[] table = TABLES[type];
+            while (white != 0) {
+                score += table[Bitboards.first(white) ^ 56];
+                white = Bitboards.popFirst(white);
+            }
+            while (black != 0) {
+                score -= table[Bitboards.first(black)];
+                black = Bitboards.popFirst(black);
+            }
+        }
+
+        // Blend the king tables by how much material is left on the board
+        phase = Math.min(phase, TOTAL_PHASE);
+        int whiteKing = board.getKingSquare(true) ^ 56;
+        int blackKing = board.getKingSquare(false);
+        int middlegame = KING_MIDDLEGAME_TABLE[whiteKing] - KING_MIDDLEGAME_TABLE[blackKing];
+        int endgame = KING_ENDGAME_TABLE[whiteKing] - KING_ENDGAME_TABLE[blackKing];
+        score += (middlegame * phase + endgame * (TOTAL_PHASE - phase)) / TOTAL_PHASE;
+
+        return board.isWhiteToMove() ? score : -score;
+    }
+}
@@ -0,0 +1,578 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Appends finished games to one segment file with a sidecar index, instead of one file per game.
+ *
+ * <p>The segment ({@code name.games}) starts with an 8-byte file header and then holds one record
+ * per game: a 32-byte header (ply count, result, start time, session id) followed by every move
+ * as a 16-bit packed move. The index ({@code name.index}) has the same file header followed by the
+ * segment offset of each game as a long, so game n and ply p of it are found without scanning;
+ * see {@link GameArchiveReader}.
+ *
+ * <p>Games still being played are kept in the move log, a run of segment files ({@code name.N.log})
+ * that each have a 16-byte header (the file header and the number of the first game that can be
+ * in the segment) followed by frames of a session id, a start time, a move count and that many
+ * 16-bit moves. Every flush writes one frame per game with the moves logged since the last one, so
+ * a crash loses at most the moves of one flush interval. Once a game is appended its frames are
+ * dead. A new segment is started when the current one is full or holds only dead frames, and a
+ * segment is deleted once every game with frames in it is appended, so the log stays as large as
+ * the games still open need. Opening the archive appends any game left open in the log with an
+ * unknown result.
+ *
+ * <p>Records are buffered until {@link #flush}, which writes the segment before the index. If the
+ * process dies in between, the unindexed tail is cut off the next time the archive is opened; if a
+ * write fails, the flush cuts both files back to the last commit and drops the buffered games.
+ * An archive is not thread-safe; {@link MoveJournal} gives it a single writer.
+ */
+public final class GameArchive implements AutoCloseable {
+
+    public static final String DEFAULT_DIRECTORY = "games";
+    public static final String DEFAULT_NAME = "games";
+
+    static final int MAGIC = 0x43484741;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int GAME_HEADER_BYTES = 32;
+    // Offsets within a game header
+    static final int PLY_COUNT = 0;
+    static final int RESULT = 4;
+    static final int START_MILLIS = 8;
+    static final int SESSION_ID = 16;
+    static final int LOG_HEADER_BYTES = 16;
+    static final int FRAME_HEADER_BYTES = 20;
+    static final long DEFAULT_LOG_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    public static final int RESULT_UNKNOWN = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private record Key(long sessionId, long startMillis) {
+    }
+
+    // One file of the move log
+    private static final class LogSegment {
+        private final long sequence;
+        private final Path path;
+        // Open games with frames in this segment
+        private int liveGames;
+
+        private LogSegment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+    }
+
+    // A game with moves in the log that is not in the archive yet
+    private static final class OpenGame {
+        private final Key key;
+        // Moves not written to the log yet
+        private int[] moves = new int[16];
+        private int count;
+        private boolean dirty;
+        // The segments it has frames in, oldest first
+        private final List<LogSegment> segments = new ArrayList<>(2);
+
+        private OpenGame(Key key) {
+            this.key = key;
+        }
+
+        private void add(int move) {
+            if (count == moves.length) {
+                moves = Arrays.copyOf(moves, count * 2);
+            }
+            moves[count++] = move;
+        }
+    }
+
+    private final Path directory;
+    private final String name;
+    private final long logSegmentBytes;
+    private final FileChannel games;
+    private final FileChannel index;
+    // Oldest first; the last one is written to through log
+    private final List<LogSegment> logSegments = new ArrayList<>();
+    private FileChannel log;
+    // Games, segment bytes and bytes of the current log segment that made it into a successful flush
+    private long gameCount;
+    private long end;
+    private long logEnd;
+    private int pendingCount;
+    private final Map<Key, OpenGame> openGames = new HashMap<>();
+    // Open games with moves to write to the log, and games appended but not yet flushed
+    private final List<OpenGame> dirtyGames = new ArrayList<>();
+    private final List<OpenGame> endedGames = new ArrayList<>();
+    private ByteBuffer pendingLog = ByteBuffer.allocateDirect(8 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer pendingGames = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer pendingOffsets = ByteBuffer.allocateDirect(8 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    public GameArchive(Path directory, String name) throws IOException {
+        this(directory, name, DEFAULT_LOG_SEGMENT_BYTES);
+    }
+
+    GameArchive(Path directory, String name, long logSegmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.name = name;
+        this.logSegmentBytes = logSegmentBytes;
+        this.games = FileChannel.open(gamesPath(directory, name), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexPath(directory, name), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+            recoverLog();
+        } catch (IOException | RuntimeException e) {
+            games.close();
+            index.close();
+            if (log != null) {
+                log.close();
+            }
+            throw e;
+        }
+    }
+
+    public static Path gamesPath(Path directory, String name) {
+        return directory.resolve(name + ".games");
+    }
+
+    public static Path indexPath(Path directory, String name) {
+        return directory.resolve(name + ".index");
+    }
+
+    public static Path logPath(Path directory, String name, long sequence) {
+        return directory.resolve(name + "." + sequence + ".log");
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    // Buffers one move of a game in progress for the log
+    public void logMove(long sessionId, long startMillis, int move) {
+        OpenGame game = openGames.computeIfAbsent(new Key(sessionId, startMillis), OpenGame::new);
+        game.add(move);
+        if (!game.dirty) {
+            game.dirty = true;
+            dirtyGames.add(game);
+        }
+    }
+
+    // Buffers one game and returns the number it gets in the archive once flushed; its moves in the
+    // log are given up when that flush succeeds
+    public long append(long sessionId, long startMillis, int result, int[] moves, int count) {
+        OpenGame open = openGames.get(new Key(sessionId, startMillis));
+        if (open != null) {
+            endedGames.add(open);
+        }
+        int recordBytes = GAME_HEADER_BYTES + 2 * count;
+        pendingGames = ensureCapacity(pendingGames, recordBytes);
+        pendingOffsets = ensureCapacity(pendingOffsets, 8);
+
+        pendingOffsets.putLong(end + pendingGames.position());
+        pendingGames.putInt(count);
+        pendingGames.put((byte) result);
+        pendingGames.put((byte) 0).putShort((short) 0);
+        pendingGames.putLong(startMillis);
+        pendingGames.putLong(sessionId);
+        pendingGames.putLong(0L);
+        for (int i = 0; i < count; i++) {
+            pendingGames.putShort((short) moves[i]);
+        }
+        return gameCount + pendingCount++;
+    }
+
+    // Writes the logged moves, the buffered games and their index entries, forcing them to disk if
+    // durable. On failure the buffered games are dropped and their numbers are given out again, while
+    // the logged moves stay buffered for the next flush
+    public void flush(boolean durable) throws IOException {
+        pendingLog.clear();
+        for (OpenGame game : dirtyGames) {
+            pendingLog = ensureCapacity(pendingLog, FRAME_HEADER_BYTES + 2 * game.count);
+            pendingLog.putLong(game.key.sessionId()).putLong(game.key.startMillis()).putInt(game.count);
+            for (int i = 0; i < game.count; i++) {
+                pendingLog.putShort((short) game.moves[i]);
+            }
+        }
+        pendingLog.flip();
+        pendingGames.flip();
+        pendingOffsets.flip();
+        try {
+            rotateLog();
+            // The moves and the records go down with one force each; the index entries that make the
+            // records count are written only after that
+            writeFully(log, pendingLog, logEnd);
+            writeFully(games, pendingGames, end);
+            if (durable) {
+                if (pendingLog.limit() > 0) {
+                    log.force(false);
+                }
+                if (pendingCount > 0) {
+                    games.force(false);
+                }
+            }
+            writeFully(index, pendingOffsets, FILE_HEADER_BYTES + gameCount * 8);
+            if (durable && pendingCount > 0) {
+                index.force(false);
+            }
+        } catch (IOException e) {
+            rollBack(e);
+            throw e;
+        }
+        logEnd += pendingLog.limit();
+        end += pendingGames.limit();
+        gameCount += pendingCount;
+        pendingCount = 0;
+        pendingGames.clear();
+        pendingOffsets.clear();
+        LogSegment current = logSegments.get(logSegments.size() - 1);
+        for (OpenGame game : dirtyGames) {
+            game.count = 0;
+            game.dirty = false;
+            if (game.segments.isEmpty() || game.segments.get(game.segments.size() - 1) != current) {
+                game.segments.add(current);
+                current.liveGames++;
+            }
+        }
+        dirtyGames.clear();
+        for (OpenGame game : endedGames) {
+            for (LogSegment segment : game.segments) {
+                segment.liveGames--;
+            }
+            openGames.remove(game.key);
+        }
+        endedGames.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush(true);
+            log.close();
+            // Nothing is written any more, so the current segment goes too if all its games are appended
+            deleteDeadSegments(logSegments.size());
+        } finally {
+            games.close();
+            index.close();
+            log.close();
+        }
+    }
+
+    public static int resultCode(String result) {
+        return switch (result) {
+            case "1-0" -> WHITE_WINS;
+            case "0-1" -> BLACK_WINS;
+            case "1/2-1/2" -> DRAW;
+            default -> RESULT_UNKNOWN;
+        };
+    }
+
+    public static String resultText(int code) {
+        return switch (code) {
+            case WHITE_WINS -> "1-0";
+            case BLACK_WINS -> "0-1";
+            case DRAW -> "1/2-1/2";
+            default -> "*";
+        };
+    }
+
+    // Writes the file headers of a new archive, or trims whatever a crash left past the last indexed game
+    private void recover() throws IOException {
+        if (index.size() < FILE_HEADER_BYTES && games.size() < FILE_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            games.truncate(0);
+            writeFully(games, header, 0);
+            header.rewind();
+            index.truncate(0);
+            writeFully(index, header, 0);
+            end = FILE_HEADER_BYTES;
+            return;
+        }
+        checkHeader(index);
+        checkHeader(games);
+
+        long entries = (index.size() - FILE_HEADER_BYTES) / 8;
+        end = FILE_HEADER_BYTES;
+        while (entries > 0) {
+            // The last index entry is only trusted if its whole record made it into the segment
+            long offset = readLong(index, FILE_HEADER_BYTES + (entries - 1) * 8);
+            if (offset + GAME_HEADER_BYTES <= games.size()) {
+                long recordEnd = offset + GAME_HEADER_BYTES + 2L * readInt(games, offset + PLY_COUNT);
+                if (recordEnd <= games.size()) {
+                    end = recordEnd;
+                    break;
+                }
+            }
+            entries--;
+        }
+        gameCount = entries;
+        index.truncate(FILE_HEADER_BYTES + entries * 8);
+        games.truncate(end);
+    }
+
+    // Appends the games a crash or shutdown left open in the log, with the moves that reached it
+    private void recoverLog() throws IOException {
+        List<Path> found = new ArrayList<>();
+        long nextSequence = 0;
+        for (long sequence : logSequences()) {
+            found.add(logPath(directory, name, sequence));
+            nextSequence = sequence + 1;
+        }
+        startLogSegment(nextSequence);
+        if (found.isEmpty()) {
+            return;
+        }
+
+        // Games appended since the oldest segment was started may have frames in the log
+        long firstGame = gameCount;
+        for (Path path : found) {
+            try (FrameReader reader = new FrameReader(path)) {
+                if (reader.firstGame >= 0) {
+                    firstGame = Math.min(firstGame, reader.firstGame);
+                }
+            }
+        }
+        Set<Key> appended = new HashSet<>();
+        for (long game = firstGame; game < gameCount; game++) {
+            long offset = readLong(index, FILE_HEADER_BYTES + game * 8);
+            appended.add(new Key(readLong(games, offset + SESSION_ID), readLong(games, offset + START_MILLIS)));
+        }
+        // Only the games still open are kept in memory, however long the log is
+        Map<Key, OpenGame> left = new LinkedHashMap<>();
+        for (Path path : found) {
+            try (FrameReader reader = new FrameReader(path)) {
+                while (reader.next()) {
+                    Key key = new Key(reader.sessionId, reader.startMillis);
+                    reader.readMoves(appended.contains(key) ? null : left.computeIfAbsent(key, OpenGame::new));
+                }
+            }
+        }
+        for (OpenGame game : left.values()) {
+            append(game.key.sessionId(), game.key.startMillis(), RESULT_UNKNOWN, game.moves, game.count);
+        }
+        // The old segments are only given up once the games they kept are in the archive
+        flush(true);
+        for (Path path : found) {
+            Files.delete(path);
+        }
+    }
+
+    // Sequence numbers of the log segments on disk, oldest first
+    private List<Long> logSequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, name + ".*.log")) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                String sequence = fileName.substring(name.length() + 1, fileName.length() - ".log".length());
+                if (!sequence.isEmpty() && sequence.chars().allMatch(Character::isDigit)) {
+                    sequences.add(Long.parseLong(sequence));
+                }
+            }
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    // Starts a new segment once the current one is full or holds only dead frames, and deletes the
+    // older segments whose games are all appended
+    private void rotateLog() throws IOException {
+        LogSegment current = logSegments.get(logSegments.size() - 1);
+        if (logEnd > LOG_HEADER_BYTES && (logEnd >= logSegmentBytes || current.liveGames == 0)) {
+            startLogSegment(current.sequence + 1);
+        }
+        deleteDeadSegments(logSegments.size() - 1);
+    }
+
+    private void deleteDeadSegments(int before) throws IOException {
+        for (int i = before - 1; i >= 0; i--) {
+            LogSegment segment = logSegments.get(i);
+            if (segment.liveGames == 0) {
+                Files.deleteIfExists(segment.path);
+                logSegments.remove(i);
+            }
+        }
+    }
+
+    private void startLogSegment(long sequence) throws IOException {
+        Path path = logPath(directory, name, sequence);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(gameCount).flip();
+            writeFully(channel, header, 0);
+            channel.force(false);
+            // The new file has to survive a crash along with the frames written to it
+            try (FileChannel parent = FileChannel.open(directory, StandardOpenOption.READ)) {
+                parent.force(true);
+            }
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        if (log != null) {
+            log.close();
+        }
+        log = channel;
+        logEnd = LOG_HEADER_BYTES;
+        logSegments.add(new LogSegment(sequence, path));
+    }
+
+    // Cuts off whatever part of a failed flush reached the files, so they end at the last commit again
+    private void rollBack(IOException cause) {
+        pendingCount = 0;
+        pendingGames.clear();
+        pendingOffsets.clear();
+        // Games whose record was dropped keep their moves in the log
+        endedGames.clear();
+        try {
+            games.truncate(end);
+            index.truncate(FILE_HEADER_BYTES + gameCount * 8);
+            log.truncate(logEnd);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    // Streams the frames of one log segment through a fixed buffer; a torn frame ends the segment
+    private static final class FrameReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        // File position of the first buffered byte
+        private long bufferStart;
+        private long position = LOG_HEADER_BYTES;
+        // The number of the first game that can be in the segment, or -1 if its header never made it to disk
+        private final long firstGame;
+        private long sessionId;
+        private long startMillis;
+        private int count;
+
+        private FrameReader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                this.size = channel.size();
+                buffer.limit(0);
+                if (size < LOG_HEADER_BYTES) {
+                    this.firstGame = -1;
+                } else {
+                    int at = load(0, LOG_HEADER_BYTES);
+                    if (buffer.getInt(at) != MAGIC || buffer.getInt(at + 4) != VERSION) {
+                        throw new IOException("Not a game archive of version " + VERSION);
+                    }
+                    this.firstGame = buffer.getLong(at + 8);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private boolean next() throws IOException {
+            if (firstGame < 0 || position + FRAME_HEADER_BYTES > size) {
+                return false;
+            }
+            int at = load(position, FRAME_HEADER_BYTES);
+            sessionId = buffer.getLong(at);
+            startMillis = buffer.getLong(at + 8);
+            count = buffer.getInt(at + 16);
+            if (count <= 0 || position + FRAME_HEADER_BYTES + 2L * count > size) {
+                return false;
+            }
+            position += FRAME_HEADER_BYTES;
+            return true;
+        }
+
+        // Adds the moves of the frame just read to the game, or skips them when it is null
+        private void readMoves(OpenGame game) throws IOException {
+            long movesEnd = position + 2L * count;
+            if (game != null) {
+                for (long at = position; at < movesEnd; at += 2) {
+                    game.add(buffer.getShort(load(at, 2)) & 0xFFFF);
+                }
+            }
+            position = movesEnd;
+        }
+
+        // Where the bytes at the given file position are in the buffer, reading ahead from there if needed
+        private int load(long at, int length) throws IOException {
+            if (at < bufferStart || at + length > bufferStart + buffer.limit()) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - at));
+                readFully(channel, buffer, at);
+                bufferStart = at;
+            }
+            return (int) (at - bufferStart);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static void checkHeader(FileChannel channel) throws IOException {
+        if (channel.size() < FILE_HEADER_BYTES || readInt(channel, 0) != MAGIC || readInt(channel, 4) != VERSION) {
+            throw new IOException("Not a game archive of version " + VERSION);
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer, position);
+        return buffer.getLong(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
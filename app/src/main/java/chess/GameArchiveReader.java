@@ -0,0 +1,135 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only, memory-mapped view of a {@link GameArchive} as it was when opened. Looking up a game
+ * is one index read and looking up a ply one more, whatever the size of the archive.
+ */
+public final class GameArchiveReader implements AutoCloseable {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment games;
+    private final MemorySegment index;
+    private final long gameCount;
+
+    public GameArchiveReader(Path directory, String name) throws IOException {
+        this.arena = Arena.ofShared();
+        try {
+            this.games = map(GameArchive.gamesPath(directory, name));
+            this.index = map(GameArchive.indexPath(directory, name));
+            if (index.byteSize() < GameArchive.FILE_HEADER_BYTES
+                    || index.get(INT, 0) != GameArchive.MAGIC || games.get(INT, 0) != GameArchive.MAGIC) {
+                throw new IOException("Not a game archive: " + directory.resolve(name));
+            }
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        this.gameCount = (index.byteSize() - GameArchive.FILE_HEADER_BYTES) / 8;
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    public int getPlyCount(long game) {
+        return games.get(INT, offset(game) + GameArchive.PLY_COUNT);
+    }
+
+    public int getResult(long game) {
+        return games.get(ValueLayout.JAVA_BYTE, offset(game) + GameArchive.RESULT);
+    }
+
+    public long getStartMillis(long game) {
+        return games.get(LONG, offset(game) + GameArchive.START_MILLIS);
+    }
+
+    public long getSessionId(long game) {
+        return games.get(LONG, offset(game) + GameArchive.SESSION_ID);
+    }
+
+    public int getMove(long game, int ply) {
+        long offset = offset(game);
+        if (ply < 0 || ply >= games.get(INT, offset + GameArchive.PLY_COUNT)) {
+            throw new IndexOutOfBoundsException("Game " + game + " has no ply " + ply);
+        }
+        return games.get(SHORT, offset + GameArchive.GAME_HEADER_BYTES + 2L * ply) & 0xFFFF;
+    }
+
+    // Sets the board to the position after the first plies of the game
+    public void replay(long game, int plies, Board board) {
+        board.resetBoard();
+        for (int ply = 0; ply < plies; ply++) {
+            board.playMove(getMove(game, ply));
+        }
+    }
+
+    public void exportPgn(Appendable out) throws IOException {
+        PgnWriter writer = new PgnWriter(out);
+        int[] moves = new int[256];
+        for (long game = 0; game < gameCount; game++) {
+            int count = getPlyCount(game);
+            if (moves.length < count) {
+                moves = new int[count];
+            }
+            for (int ply = 0; ply < count; ply++) {
+                moves[ply] = getMove(game, ply);
+            }
+            String result = GameArchive.resultText(getResult(game));
+            Map<String, String> tags = new LinkedHashMap<>();
+            tags.put("Event", "Casual game");
+            tags.put("Site", "?");
+            tags.put("Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date(getStartMillis(game))));
+            tags.put("Round", Long.toString(game + 1));
+            tags.put("White", "?");
+            tags.put("Black", "?");
+            tags.put("Result", result);
+            writer.writeGame(tags, moves, count, result);
+        }
+    }
+
+    // Usage: GameArchiveReader [directory] [name]; prints every archived game as PGN
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : GameArchive.DEFAULT_DIRECTORY);
+        String name = args.length > 1 ? args[1] : GameArchive.DEFAULT_NAME;
+        try (GameArchiveReader reader = new GameArchiveReader(directory, name)) {
+            StringBuilder out = new StringBuilder();
+            reader.exportPgn(out);
+            System.out.print(out);
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long offset(long game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("No game " + game + " in an archive of " + gameCount);
+        }
+        return index.get(LONG, GameArchive.FILE_HEADER_BYTES + game * 8);
+    }
+
+    private MemorySegment map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        }
+    }
+}
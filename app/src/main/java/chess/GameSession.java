@@ -0,0 +1,154 @@
+package chess;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * One game: its own board, move log and draw state. Nothing is shared between sessions, so any
+ * number of them can run side by side; the lock serialises moves made on one session from
+ * several threads.
+ */
+public class GameSession {
+
+    private final long id;
+    private final Board board;
+    private final MoveLogger moveLogger;
+    // Where moves and finished games are recorded, or null when they are not
+    private final MoveJournal journal;
+    // Every move played since start(), for exporting the game
+    private int[] playedMoves = new int[128];
+    private int playedCount;
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    private Date startDate = new Date();
+    // A ReentrantLock rather than synchronized so a waiting virtual thread does not pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public GameSession(long id, MoveJournal journal) {
+        this.id = id;
+        this.board = new Board();
+        this.moveLogger = new MoveLogger(this.board);
+        this.journal = journal;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public MoveLogger getMoveLogger() {
+        return moveLogger;
+    }
+
+    public void start() {
+        this.board.resetBoard();
+        this.moveLogger.reset();
+        this.playedCount = 0;
+        this.startDate = new Date();
+    }
+
+    public boolean isWhiteToMove() {
+        return this.board.isWhiteToMove();
+    }
+
+    // Moves are journaled as they are played; this finishes the record and completes with its number
+    // in the archive once it is on disk
+    public CompletableFuture<Long> endGame() {
+        if (this.journal == null) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        return this.journal.record(this.id, this.startDate.getTime(), getResult(), this.playedMoves, this.playedCount);
+    }
+
+    public boolean isOver() {
+        return this.board.isWhiteWon() || this.board.isBlackWon() || this.moveLogger.isDraw()
+                || this.board.isCheckmate();
+    }
+
+    // Plays a move typed as UCI ("e2e4", "e7e8n"), "e4xd5" or SAN ("Nf3", "O-O") and logs it; false if it
+    // is not legal
+    public boolean makeMove(CharSequence move) {
+        int parsed = MoveParser.parse(this.board, move, this.moveBuffer);
+        if (parsed == Move.NONE) {
+            return false;
+        }
+        this.board.playMove(parsed);
+        if (playedCount == playedMoves.length) {
+            playedMoves = Arrays.copyOf(playedMoves, playedCount * 2);
+        }
+        playedMoves[playedCount++] = this.board.getLastMove();
+        if (this.journal != null) {
+            this.journal.recordMove(this.id, this.startDate.getTime(), this.board.getLastMove());
+        }
+        this.moveLogger.logMove();
+        return true;
+    }
+
+    public int getPlayedCount() {
+        return playedCount;
+    }
+
+    // "1-0", "0-1" or "1/2-1/2" once the game is decided, otherwise "*"
+    public String getResult() {
+        if (this.board.isWhiteWon()) {
+            return "1-0";
+        }
+        if (this.board.isBlackWon()) {
+            return "0-1";
+        }
+        if (this.moveLogger.isDraw()) {
+            return "1/2-1/2";
+        }
+        if (this.board.isCheckmate()) {
+            return isWhiteToMove() ? "0-1" : "1-0";
+        }
+        return this.board.isStalemate() ? "1/2-1/2" : "*";
+    }
+
+    public void writePgn(Appendable out, String white, String black) throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Casual game");
+        tags.put("Site", "?");
+        tags.put("Date", new SimpleDateFormat("yyyy.MM.dd").format(startDate));
+        tags.put("Round", "-");
+        tags.put("White", white);
+        tags.put("Black", black);
+        tags.put("Result", getResult());
+        new PgnWriter(out).writeGame(tags, playedMoves, playedCount, getResult());
+    }
+
+    <T> T withLock(Function<GameSession, T> action) {
+        lock.lock();
+        try {
+            return action.apply(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Engine and generated moves go through the same notation a player types
+    public static String toNotation(int move) {
+        if (Move.isCastle(move)) {
+            return Move.flags(move) == Move.KING_CASTLE ? "O-O" : "O-O-O";
+        }
+        StringBuilder builder = new StringBuilder(6);
+        Move.appendSquare(builder, Move.from(move));
+        if (Move.isCapture(move)) {
+            builder.append('x');
+        }
+        Move.appendSquare(builder, Move.to(move));
+        if (Move.isPromotion(move)) {
+            builder.append(Character.toLowerCase(Move.promotionType(move).toChar()));
+        }
+        return builder.toString();
+    }
+}
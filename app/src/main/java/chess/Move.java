@@ -0,0 +1,96 @@
+package chess;
+
+/**
+ * Moves are packed into an int: bits 0-5 hold the origin square, bits 6-11 the target square
+ * and bits 12-15 the flags. Promotions set the promotion bit and keep the promoted piece in
+ * the low two flag bits, so every move fits in 16 bits.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+
+    private static final PieceTypes[] PROMOTION_TYPES = {
+        PieceTypes.KNIGHT, PieceTypes.BISHOP, PieceTypes.ROOK, PieceTypes.QUEEN
+    };
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    public static int promotion(int from, int to, PieceTypes type, boolean capture) {
+        int flags = PROMOTION | (capture ? CAPTURE : 0);
+        switch (type) {
+            case KNIGHT:
+                break;
+            case BISHOP:
+                flags |= 1;
+                break;
+            case ROOK:
+                flags |= 2;
+                break;
+            default:
+                flags |= 3;
+                break;
+        }
+        return of(from, to, flags);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flags(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return flags(move) == EN_PASSANT;
+    }
+
+    public static PieceTypes promotionType(int move) {
+        return isPromotion(move) ? PROMOTION_TYPES[flags(move) & 3] : PieceTypes.NONE;
+    }
+
+    public static String toString(int move) {
+        StringBuilder builder = new StringBuilder(5);
+        appendSquare(builder, from(move));
+        appendSquare(builder, to(move));
+        if (isPromotion(move)) {
+            builder.append(Character.toLowerCase(promotionType(move).toChar()));
+        }
+        return builder.toString();
+    }
+
+    static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + Bitboards.file(square)));
+        builder.append((char) ('1' + Bitboards.rank(square)));
+    }
+}
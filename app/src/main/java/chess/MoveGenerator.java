@@ -0,0 +1,311 @@
+package chess;
+
+public final class MoveGenerator {
+
+    // No reachable position has more than 218 legal moves
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+    }
+
+    // Writes every pseudo-legal move for one side into the caller's buffer and returns the count
+    public static int generate(Board board, boolean isWhite, int[] moves) {
+        return generate(board, isWhite, moves, false);
+    }
+
+    // Only captures and promotions, for the quiescence search
+    public static int generateCaptures(Board board, boolean isWhite, int[] moves) {
+        return generate(board, isWhite, moves, true);
+    }
+
+    // Writes only the legal moves of the side to move. Checkers and pinned pieces are found once up
+    // front, so no move has to be made and tested; no moves at all means mate or stalemate.
+    public static int generateLegal(Board board, int[] moves) {
+        return generateLegal(board, moves, false, false);
+    }
+
+    // The legal captures and promotions of the side to move
+    public static int generateLegalCaptures(Board board, int[] moves) {
+        return generateLegal(board, moves, true, false);
+    }
+
+    // Whether the side to move has any legal move. Generation stops after the first piece type that
+    // has one, king first, so a position with moves rarely costs a full generation.
+    public static boolean hasLegalMove(Board board, int[] moves) {
+        return generateLegal(board, moves, false, true) > 0;
+    }
+
+    private static int generate(Board board, boolean isWhite, int[] moves, boolean capturesOnly) {
+        long own = board.getOccupancy(isWhite);
+        long enemy = board.getOccupancy(!isWhite);
+        long occupied = board.getOccupied();
+        long targets = capturesOnly ? enemy : ~own;
+
+        int count = generatePawnMoves(board, isWhite, board.getPieces(PieceTypes.PAWN, isWhite), -1L, moves, 0,
+                capturesOnly);
+        count = generateEnPassant(board, isWhite, false, 0L, moves, count);
+
+        long knights = board.getPieces(PieceTypes.KNIGHT, isWhite);
+        while (knights != 0) {
+            int from = Bitboards.first(knights);
+            knights = Bitboards.popFirst(knights);
+            count = addMoves(moves, count, from, Attacks.knight(from) & targets, enemy);
+        }
+        long bishops = board.getPieces(PieceTypes.BISHOP, isWhite);
+        while (bishops != 0) {
+            int from = Bitboards.first(bishops);
+            bishops = Bitboards.popFirst(bishops);
+            count = addMoves(moves, count, from, Attacks.bishop(from, occupied) & targets, enemy);
+        }
+        long rooks = board.getPieces(PieceTypes.ROOK, isWhite);
+        while (rooks != 0) {
+            int from = Bitboards.first(rooks);
+            rooks = Bitboards.popFirst(rooks);
+            count = addMoves(moves, count, from, Attacks.rook(from, occupied) & targets, enemy);
+        }
+        long queens = board.getPieces(PieceTypes.QUEEN, isWhite);
+        while (queens != 0) {
+            int from = Bitboards.first(queens);
+            queens = Bitboards.popFirst(queens);
+            count = addMoves(moves, count, from, Attacks.queen(from, occupied) & targets, enemy);
+        }
+        long king = board.getPieces(PieceTypes.KING, isWhite);
+        if (king != 0) {
+            int from = Bitboards.first(king);
+            count = addMoves(moves, count, from, Attacks.king(from) & targets, enemy);
+            if (!capturesOnly) {
+                count = generateCastling(board, isWhite, from, moves, count);
+            }
+        }
+        return count;
+    }
+
+    private static int generateLegal(Board board, int[] moves, boolean capturesOnly, boolean anyMove) {
+        boolean isWhite = board.isWhiteToMove();
+        if (board.getPieces(PieceTypes.KING, isWhite) == 0) {
+            // A set-up position without a king has nothing to keep out of check
+            return generate(board, isWhite, moves, capturesOnly);
+        }
+        long own = board.getOccupancy(isWhite);
+        long enemy = board.getOccupancy(!isWhite);
+        long occupied = board.getOccupied();
+        long targets = capturesOnly ? enemy : ~own;
+        int king = board.getKingSquare(isWhite);
+        long enemyDiagonal = board.getPieces(PieceTypes.BISHOP, !isWhite) | board.getPieces(PieceTypes.QUEEN, !isWhite);
+        long enemyStraight = board.getPieces(PieceTypes.ROOK, !isWhite) | board.getPieces(PieceTypes.QUEEN, !isWhite);
+
+        long checkers = 0L;
+        long danger = board.getAttacks(!isWhite);
+        if (Bitboards.isSet(danger, king)) {
+            checkers = (Attacks.pawn(king, isWhite) & board.getPieces(PieceTypes.PAWN, !isWhite))
+                    | (Attacks.knight(king) & board.getPieces(PieceTypes.KNIGHT, !isWhite))
+                    | (Attacks.bishop(king, occupied) & enemyDiagonal)
+                    | (Attacks.rook(king, occupied) & enemyStraight);
+            // The king cannot step back along the ray of a slider that checks it
+            long withoutKing = occupied & ~Bitboards.bit(king);
+            for (long sliders = checkers & (enemyDiagonal | enemyStraight); sliders != 0; sliders &= sliders - 1) {
+                int slider = Bitboards.first(sliders);
+                if (Bitboards.isSet(enemyDiagonal, slider)) {
+                    danger |= Attacks.bishop(slider, withoutKing);
+                }
+                if (Bitboards.isSet(enemyStraight, slider)) {
+                    danger |= Attacks.rook(slider, withoutKing);
+                }
+            }
+        }
+        int count = addMoves(moves, 0, king, Attacks.king(king) & targets & ~danger, enemy);
+        if (Long.bitCount(checkers) > 1 || anyMove && count > 0) {
+            // Only the king can answer a double check, and any king move answers whether there is a move
+            return count;
+        }
+        // Out of check every other move has to capture the checker or block it
+        long evasions = checkers == 0 ? -1L : checkers | Attacks.between(king, Bitboards.first(checkers));
+        targets &= evasions;
+
+        // A piece is pinned when it is the only one between the king and an enemy slider looking at it
+        long pinned = 0L;
+        long snipers = (Attacks.bishop(king, enemy) & enemyDiagonal) | (Attacks.rook(king, enemy) & enemyStraight);
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.between(king, Bitboards.first(snipers)) & occupied;
+            if ((blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+
+        long pawns = board.getPieces(PieceTypes.PAWN, isWhite);
+        count = generatePawnMoves(board, isWhite, pawns & ~pinned, evasions, moves, count, capturesOnly);
+        for (long pinnedPawns = pawns & pinned; pinnedPawns != 0; pinnedPawns &= pinnedPawns - 1) {
+            int from = Bitboards.first(pinnedPawns);
+            count = generatePawnMoves(board, isWhite, Bitboards.bit(from), evasions & Attacks.line(king, from), moves,
+                    count, capturesOnly);
+        }
+        count = generateEnPassant(board, isWhite, true, checkers, moves, count);
+        if (anyMove && count > 0) {
+            return count;
+        }
+
+        long knights = board.getPieces(PieceTypes.KNIGHT, isWhite) & ~pinned;
+        for (; knights != 0; knights &= knights - 1) {
+            int from = Bitboards.first(knights);
+            count = addMoves(moves, count, from, Attacks.knight(from) & targets, enemy);
+        }
+        if (anyMove && count > 0) {
+            return count;
+        }
+        long bishops = board.getPieces(PieceTypes.BISHOP, isWhite);
+        for (; bishops != 0; bishops &= bishops - 1) {
+            int from = Bitboards.first(bishops);
+            count = addMoves(moves, count, from, Attacks.bishop(from, occupied) & targets & pinRay(pinned, king, from),
+                    enemy);
+        }
+        if (anyMove && count > 0) {
+            return count;
+        }
+        long rooks = board.getPieces(PieceTypes.ROOK, isWhite);
+        for (; rooks != 0; rooks &= rooks - 1) {
+            int from = Bitboards.first(rooks);
+            count = addMoves(moves, count, from, Attacks.rook(from, occupied) & targets & pinRay(pinned, king, from),
+                    enemy);
+        }
+        if (anyMove && count > 0) {
+            return count;
+        }
+        long queens = board.getPieces(PieceTypes.QUEEN, isWhite);
+        for (; queens != 0; queens &= queens - 1) {
+            int from = Bitboards.first(queens);
+            count = addMoves(moves, count, from, Attacks.queen(from, occupied) & targets & pinRay(pinned, king, from),
+                    enemy);
+        }
+        if (checkers == 0 && !capturesOnly) {
+            count = generateCastling(board, isWhite, king, moves, count);
+        }
+        return count;
+    }
+
+    // Where a piece may go without uncovering its king: anywhere, or along the line of its pin
+    private static long pinRay(long pinned, int king, int from) {
+        return Bitboards.isSet(pinned, from) ? Attacks.line(king, from) : -1L;
+    }
+
+    // Pawn moves of the given pawns that land on the mask, en passant aside
+    private static int generatePawnMoves(Board board, boolean isWhite, long pawns, long mask, int[] moves, int count,
+            boolean capturesOnly) {
+        long empty = ~board.getOccupied();
+        long enemy = board.getOccupancy(!isWhite);
+        int forward = isWhite ? 8 : -8;
+        long promotionRank = isWhite ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long doublePushRank = isWhite ? 0xFF000000L : 0xFF00000000L;
+
+        long single = (isWhite ? pawns << 8 : pawns >>> 8) & empty;
+        long doubles = capturesOnly ? 0L : (isWhite ? single << 8 : single >>> 8) & empty & doublePushRank & mask;
+        single &= mask;
+
+        long pushes = capturesOnly ? 0L : single & ~promotionRank;
+        while (pushes != 0) {
+            int to = Bitboards.first(pushes);
+            pushes = Bitboards.popFirst(pushes);
+            moves[count++] = Move.of(to - forward, to, Move.QUIET);
+        }
+        while (doubles != 0) {
+            int to = Bitboards.first(doubles);
+            doubles = Bitboards.popFirst(doubles);
+            moves[count++] = Move.of(to - 2 * forward, to, Move.DOUBLE_PAWN_PUSH);
+        }
+        long promotions = single & promotionRank;
+        while (promotions != 0) {
+            int to = Bitboards.first(promotions);
+            promotions = Bitboards.popFirst(promotions);
+            count = addPromotions(moves, count, to - forward, to, false);
+        }
+
+        long capturers = pawns;
+        while (capturers != 0) {
+            int from = Bitboards.first(capturers);
+            capturers = Bitboards.popFirst(capturers);
+            long captures = Attacks.pawn(from, isWhite) & enemy & mask;
+            while (captures != 0) {
+                int to = Bitboards.first(captures);
+                captures = Bitboards.popFirst(captures);
+                if (Bitboards.isSet(promotionRank, to)) {
+                    count = addPromotions(moves, count, from, to, true);
+                } else {
+                    moves[count++] = Move.of(from, to, Move.CAPTURE);
+                }
+            }
+        }
+        return count;
+    }
+
+    // En passant captures. Two pawns leave the rank at once, so the legal ones are found by looking
+    // along the king's lines with both gone rather than through the usual pin rules.
+    private static int generateEnPassant(Board board, boolean isWhite, boolean legalOnly, long checkers, int[] moves,
+            int count) {
+        int enPassant = board.getEnPassantSquare();
+        if (enPassant < 0) {
+            return count;
+        }
+        int captured = isWhite ? enPassant - 8 : enPassant + 8;
+        int king = board.getKingSquare(isWhite);
+        long capturers = Attacks.pawn(enPassant, !isWhite) & board.getPieces(PieceTypes.PAWN, isWhite);
+        for (; capturers != 0; capturers &= capturers - 1) {
+            int from = Bitboards.first(capturers);
+            if (legalOnly) {
+                // A knight's or a pawn's check is only answered if the pawn taken is the one giving it
+                long leapers = checkers & ~board.getPieces(PieceTypes.BISHOP, !isWhite)
+                        & ~board.getPieces(PieceTypes.ROOK, !isWhite) & ~board.getPieces(PieceTypes.QUEEN, !isWhite);
+                if ((leapers & ~Bitboards.bit(captured)) != 0) {
+                    continue;
+                }
+                long occupied = (board.getOccupied() & ~Bitboards.bit(from) & ~Bitboards.bit(captured))
+                        | Bitboards.bit(enPassant);
+                long diagonal = board.getPieces(PieceTypes.BISHOP, !isWhite) | board.getPieces(PieceTypes.QUEEN, !isWhite);
+                long straight = board.getPieces(PieceTypes.ROOK, !isWhite) | board.getPieces(PieceTypes.QUEEN, !isWhite);
+                if ((Attacks.bishop(king, occupied) & diagonal) != 0 || (Attacks.rook(king, occupied) & straight) != 0) {
+                    continue;
+                }
+            }
+            moves[count++] = Move.of(from, enPassant, Move.EN_PASSANT);
+        }
+        return count;
+    }
+
+    private static int generateCastling(Board board, boolean isWhite, int king, int[] moves, int count) {
+        int rights = board.getCastlingRights();
+        int kingSide = isWhite ? Board.WHITE_KINGSIDE : Board.BLACK_KINGSIDE;
+        int queenSide = isWhite ? Board.WHITE_QUEENSIDE : Board.BLACK_QUEENSIDE;
+        if ((rights & (kingSide | queenSide)) == 0 || king != (isWhite ? 4 : 60)) {
+            return count;
+        }
+        long occupied = board.getOccupied();
+        // The king may not castle out of, through or into check
+        if (board.isSquareAttacked(king, !isWhite)) {
+            return count;
+        }
+        if ((rights & kingSide) != 0 && (occupied & (0x60L << (king - 4))) == 0
+                && !board.isSquareAttacked(king + 1, !isWhite) && !board.isSquareAttacked(king + 2, !isWhite)) {
+            moves[count++] = Move.of(king, king + 2, Move.KING_CASTLE);
+        }
+        if ((rights & queenSide) != 0 && (occupied & (0x0EL << (king - 4))) == 0
+                && !board.isSquareAttacked(king - 1, !isWhite) && !board.isSquareAttacked(king - 2, !isWhite)) {
+            moves[count++] = Move.of(king, king - 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets, long enemy) {
+        while (targets != 0) {
+            int to = Bitboards.first(targets);
+            targets = Bitboards.popFirst(targets);
+            moves[count++] = Move.of(from, to, Bitboards.isSet(enemy, to) ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to, boolean capture) {
+        moves[count++] = Move.promotion(from, to, PieceTypes.QUEEN, capture);
+        moves[count++] = Move.promotion(from, to, PieceTypes.ROOK, capture);
+        moves[count++] = Move.promotion(from, to, PieceTypes.BISHOP, capture);
+        moves[count++] = Move.promotion(from, to, PieceTypes.KNIGHT, capture);
+        return count;
+    }
+}
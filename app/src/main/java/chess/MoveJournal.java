@@ -0,0 +1,162 @@
+package chess;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the games of any number of sessions into one {@link GameArchive} on a background thread.
+ * Callers only queue each move as it is played and the game once it ends; the writer hands them to
+ * the archive and commits everything queued with one fsync per file once enough entries are pending
+ * or the oldest has waited long enough. Many moves and games share one disk flush, no system call
+ * happens on the thread that played them, and a crash loses at most one flush interval of moves.
+ */
+public final class MoveJournal implements AutoCloseable {
+
+    public static final int DEFAULT_FLUSH_COUNT = 256;
+    public static final long DEFAULT_FLUSH_MILLIS = 100;
+
+    // A move when stored is null, otherwise a finished game
+    private record Entry(long sessionId, long startMillis, int move, int result, int[] moves,
+            CompletableFuture<Long> stored) {
+    }
+
+    private static final Entry SHUTDOWN = new Entry(0, 0, 0, 0, null, null);
+
+    private final GameArchive archive;
+    private final int flushCount;
+    private final long flushNanos;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    // Games appended to the archive but not yet forced, with the numbers they were given
+    private final List<CompletableFuture<Long>> unsynced = new ArrayList<>();
+    private final List<Long> unsyncedNumbers = new ArrayList<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // The journal owns the archive and closes it
+    public MoveJournal(GameArchive archive) {
+        this(archive, DEFAULT_FLUSH_COUNT, DEFAULT_FLUSH_MILLIS);
+    }
+
+    public MoveJournal(GameArchive archive, int flushCount, long flushMillis) {
+        if (flushCount < 1 || flushMillis < 1) {
+            throw new IllegalArgumentException("Flush count and interval must be positive");
+        }
+        this.archive = archive;
+        this.flushCount = flushCount;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.writer = Thread.ofPlatform().daemon().name("move-journal").start(this::run);
+    }
+
+    // Queues a move of a game in progress, identified by its session and start time
+    public void recordMove(long sessionId, long startMillis, int move) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        queue.add(new Entry(sessionId, startMillis, move, 0, null, null));
+    }
+
+    // Queues a finished game; the future completes with its number in the archive once it is on disk
+    public CompletableFuture<Long> record(long sessionId, long startMillis, String result, int[] moves, int count) {
+        CompletableFuture<Long> stored = new CompletableFuture<>();
+        if (closed) {
+            stored.completeExceptionally(new IllegalStateException("Journal is closed"));
+            return stored;
+        }
+        int[] copy = new int[count];
+        System.arraycopy(moves, 0, copy, 0, count);
+        queue.add(new Entry(sessionId, startMillis, 0, GameArchive.resultCode(result), copy, stored));
+        return stored;
+    }
+
+    // Commits what is queued, stops the writer and closes the archive; games that have not ended stay
+    // in its move log
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        int pending = 0;
+        long oldest = 0;
+        while (true) {
+            Entry first;
+            try {
+                if (pending == 0) {
+                    first = queue.take();
+                } else {
+                    first = queue.poll(Math.max(0, oldest + flushNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                first = SHUTDOWN;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch);
+            }
+
+            for (Entry entry : batch) {
+                if (entry == SHUTDOWN) {
+                    commit();
+                    closeArchive();
+                    return;
+                }
+                if (pending == 0) {
+                    oldest = System.nanoTime();
+                }
+                pending++;
+                if (entry.stored() == null) {
+                    archive.logMove(entry.sessionId(), entry.startMillis(), entry.move());
+                    continue;
+                }
+                long number = archive.append(entry.sessionId(), entry.startMillis(), entry.result(), entry.moves(),
+                        entry.moves().length);
+                unsynced.add(entry.stored());
+                unsyncedNumbers.add(number);
+            }
+            batch.clear();
+
+            if (pending >= flushCount || pending > 0 && System.nanoTime() - oldest >= flushNanos) {
+                commit();
+                pending = 0;
+            }
+        }
+    }
+
+    private void commit() {
+        try {
+            archive.flush(true);
+            for (int i = 0; i < unsynced.size(); i++) {
+                unsynced.get(i).complete(unsyncedNumbers.get(i));
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing the game archive.");
+            for (CompletableFuture<Long> stored : unsynced) {
+                stored.completeExceptionally(e);
+            }
+        }
+        unsynced.clear();
+        unsyncedNumbers.clear();
+    }
+
+    private void closeArchive() {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            System.out.println("An error occurred while closing the game archive.");
+        }
+    }
+}
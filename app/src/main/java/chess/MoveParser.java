@@ -0,0 +1,78 @@
+package chess;
+
+/**
+ * Reads a move straight from text into a packed move: UCI ("e2e4", "e7e8q"), the long form the console
+ * shows ("e4xd5", "e7e8=Q") or SAN ("Nbd7", "exd6", "O-O+"). The move is resolved against the legal
+ * moves of the current position, so disambiguation and promotion come out right, and nothing is
+ * allocated; the caller passes the move buffer to generate into.
+ */
+public final class MoveParser {
+
+    private MoveParser() {
+    }
+
+    // The legal move the text names, or Move.NONE if there is none or it is ambiguous
+    public static int parse(Board board, CharSequence text, int[] moves) {
+        int end = text.length();
+        while (end > 0 && isSuffix(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end < 4 || !isSquare(text, 0)) {
+            return San.parse(board, text, moves);
+        }
+        int i = 2;
+        boolean capture = false;
+        if (text.charAt(i) == 'x' || text.charAt(i) == '-') {
+            capture = text.charAt(i) == 'x';
+            i++;
+        }
+        if (end - i < 2 || !isSquare(text, i)) {
+            // "e4" followed by something else, such as the SAN pawn move "e8=Q"
+            return San.parse(board, text, moves);
+        }
+        int from = square(text, 0);
+        int to = square(text, i);
+        i += 2;
+        PieceTypes promotion = PieceTypes.NONE;
+        if (i < end && text.charAt(i) == '=') {
+            i++;
+        }
+        if (i < end) {
+            promotion = PieceTypes.fromChar(Character.toUpperCase(text.charAt(i++)));
+            if (promotion == PieceTypes.NONE || promotion == PieceTypes.PAWN || promotion == PieceTypes.KING) {
+                return Move.NONE;
+            }
+        }
+        if (i != end) {
+            return Move.NONE;
+        }
+
+        int count = MoveGenerator.generateLegal(board, moves);
+        for (int m = 0; m < count; m++) {
+            int move = moves[m];
+            if (Move.from(move) != from || Move.to(move) != to || capture && !Move.isCapture(move)) {
+                continue;
+            }
+            // A promotion without a piece named is to a queen
+            PieceTypes promoted = Move.promotionType(move);
+            if (promoted == promotion || promotion == PieceTypes.NONE && promoted == PieceTypes.QUEEN) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static boolean isSquare(CharSequence text, int index) {
+        char file = text.charAt(index);
+        char rank = text.charAt(index + 1);
+        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
+    }
+
+    private static int square(CharSequence text, int index) {
+        return Bitboards.square(text.charAt(index + 1) - '1', text.charAt(index) - 'a');
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+}
@@ -0,0 +1,144 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.random.RandomGenerator;
+
+/**
+ * Book moves looked up by position key in a file written by {@link OpeningBookBuilder}. The file
+ * is an 8-byte header followed by 16-byte entries (key, move, weight, unused) sorted by key, so a
+ * lookup is a binary search of the mapping. Nothing is read up front: opening a book costs one
+ * mmap and every process using the same file shares its pages. Safe to use from several threads.
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    static final int MAGIC = 0x4B4F4F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int ENTRY_BYTES = 16;
+    // Offsets within an entry
+    static final int KEY = 0;
+    static final int MOVE = 8;
+    static final int WEIGHT = 10;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final long entryCount;
+
+    public OpeningBook(Path path) throws IOException {
+        this.arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (data.byteSize() < HEADER_BYTES || data.get(INT, 0) != MAGIC || data.get(INT, 4) != VERSION
+                    || (data.byteSize() - HEADER_BYTES) % ENTRY_BYTES != 0) {
+                throw new IOException("Not an opening book of version " + VERSION + ": " + path);
+            }
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        this.entryCount = (data.byteSize() - HEADER_BYTES) / ENTRY_BYTES;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    // Fills moves and weights with the book entries for the key, heaviest first, and returns how many there are
+    public int getMoves(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for (long i = lowerBound(key); i < entryCount && keyAt(i) == key && count < moves.length; i++) {
+            moves[count] = moveAt(i);
+            weights[count] = weightAt(i);
+            count++;
+        }
+        return count;
+    }
+
+    // The heaviest book move that is legal here, or Move.NONE when the position is not in the book
+    public int bestMove(Board board) {
+        long key = board.getKey();
+        for (long i = lowerBound(key); i < entryCount && keyAt(i) == key; i++) {
+            if (isLegal(board, moveAt(i))) {
+                return moveAt(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    // A legal book move chosen with probability proportional to its weight, or Move.NONE
+    public int pickMove(Board board, RandomGenerator random) {
+        long key = board.getKey();
+        long first = lowerBound(key);
+        long total = 0;
+        long end = first;
+        for (; end < entryCount && keyAt(end) == key; end++) {
+            total += weightAt(end);
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        long target = random.nextLong(total);
+        for (long i = first; i < end; i++) {
+            target -= weightAt(i);
+            if (target < 0) {
+                // A key collision can name a move from another position, so fall back to the best legal one
+                return isLegal(board, moveAt(i)) ? moveAt(i) : bestMove(board);
+            }
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // Index of the first entry whose key is not below the given one, comparing keys as unsigned
+    private long lowerBound(long key) {
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long index) {
+        return data.get(LONG, HEADER_BYTES + index * ENTRY_BYTES + KEY);
+    }
+
+    private int moveAt(long index) {
+        return data.get(SHORT, HEADER_BYTES + index * ENTRY_BYTES + MOVE) & 0xFFFF;
+    }
+
+    private int weightAt(long index) {
+        return data.get(SHORT, HEADER_BYTES + index * ENTRY_BYTES + WEIGHT) & 0xFFFF;
+    }
+
+    private static boolean isLegal(Board board, int move) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,158 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} from PGN files. Every move played in the first plies of a game is
+ * counted for the position it was played in and weighted by how the game went for the side that
+ * played it: 2 for a win, 1 for a draw or unknown result and 0 for a loss.
+ */
+public final class OpeningBookBuilder {
+
+    public static final int DEFAULT_MAX_PLIES = 20;
+
+    private record Key(long position, int move) {
+    }
+
+    private final int maxPlies;
+    private final int minGames;
+    // Weight and number of games for every position and move seen so far
+    private final Map<Key, int[]> counts = new HashMap<>();
+    private final long[] gameKeys;
+    private final int[] gameMoves;
+    private long gamesRead;
+
+    public OpeningBookBuilder(int maxPlies, int minGames) {
+        if (maxPlies < 1 || minGames < 1) {
+            throw new IllegalArgumentException("Plies and minimum games must be positive");
+        }
+        this.maxPlies = maxPlies;
+        this.minGames = minGames;
+        this.gameKeys = new long[maxPlies];
+        this.gameMoves = new int[maxPlies];
+    }
+
+    public long getGamesRead() {
+        return gamesRead;
+    }
+
+    public void addPgn(Path pgn) throws IOException {
+        try (PgnReader reader = new PgnReader(pgn)) {
+            PgnReader.Visitor visitor = new PgnReader.Visitor() {
+                private int plies;
+                private boolean whiteStarts;
+
+                @Override
+                public void move(Board board, int move) {
+                    if (plies == 0) {
+                        whiteStarts = board.isWhiteToMove();
+                    }
+                    if (plies < maxPlies) {
+                        gameKeys[plies] = board.getKey();
+                        gameMoves[plies] = move;
+                    }
+                    plies++;
+                }
+
+                @Override
+                public void end(Board board, CharSequence result) {
+                    addGame(Math.min(plies, maxPlies), whiteStarts, result.toString());
+                    plies = 0;
+                }
+            };
+            while (reader.readGame(visitor)) {
+                gamesRead++;
+            }
+        }
+    }
+
+    // Writes the book sorted by key, heaviest move first within a position
+    public long write(Path output) throws IOException {
+        List<Map.Entry<Key, int[]>> entries = new ArrayList<>();
+        Map<Long, Integer> heaviest = new HashMap<>();
+        for (Map.Entry<Key, int[]> entry : counts.entrySet()) {
+            int[] count = entry.getValue();
+            if (count[0] > 0 && count[1] >= minGames) {
+                entries.add(entry);
+                heaviest.merge(entry.getKey().position(), count[0], Math::max);
+            }
+        }
+        // Keys are compared unsigned, as the book searches them
+        entries.sort(Comparator.<Map.Entry<Key, int[]>, Long>comparing(e -> e.getKey().position(), Long::compareUnsigned)
+                .thenComparing(e -> e.getValue()[0], Comparator.reverseOrder()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + entries.size() * OpeningBook.ENTRY_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION);
+        for (Map.Entry<Key, int[]> entry : entries) {
+            int weight = entry.getValue()[0];
+            int max = heaviest.get(entry.getKey().position());
+            if (max > 0xFFFF) {
+                // Weights are stored in 16 bits, so scale the position down keeping every move playable
+                weight = (int) Math.max(1, (long) weight * 0xFFFF / max);
+            }
+            buffer.putLong(entry.getKey().position());
+            buffer.putShort((short) entry.getKey().move());
+            buffer.putShort((short) weight);
+            buffer.putInt(0);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return entries.size();
+    }
+
+    private void addGame(int plies, boolean whiteStarts, String result) {
+        for (int ply = 0; ply < plies; ply++) {
+            boolean white = whiteStarts == (ply % 2 == 0);
+            int weight = switch (result) {
+                case "1-0" -> white ? 2 : 0;
+                case "0-1" -> white ? 0 : 2;
+                default -> 1;
+            };
+            int[] count = counts.computeIfAbsent(new Key(gameKeys[ply], gameMoves[ply]), key -> new int[2]);
+            count[0] += weight;
+            count[1]++;
+        }
+    }
+
+    // Usage: OpeningBookBuilder <book> [--plies N] [--min-games N] <pgn>...
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: OpeningBookBuilder <book> [--plies N] [--min-games N] <pgn>...");
+            return;
+        }
+        int plies = DEFAULT_MAX_PLIES;
+        int minGames = 1;
+        List<Path> pgns = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies" -> plies = Integer.parseInt(args[++i]);
+                case "--min-games" -> minGames = Integer.parseInt(args[++i]);
+                default -> pgns.add(Path.of(args[i]));
+            }
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, minGames);
+        long start = System.nanoTime();
+        for (Path pgn : pgns) {
+            builder.addPgn(pgn);
+        }
+        long entries = builder.write(Path.of(args[0]));
+        System.out.printf("%d games, %d book entries written to %s in %d ms%n", builder.getGamesRead(), entries,
+                args[0], (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP: every thread searches the same root position on its own board and they cooperate only
+ * through the shared transposition table. The first worker searches the caller's board within the
+ * given limits and its result is returned; the helpers run until it finishes.
+ */
+public final class ParallelSearch implements AutoCloseable {
+
+    private final Board board;
+    private final TranspositionTable table;
+    private final Search[] workers;
+    private final ExecutorService helpers;
+
+    public ParallelSearch(Board board, TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed");
+        }
+        this.board = board;
+        this.table = table;
+        this.workers = new Search[threads];
+        this.workers[0] = new Search(board, table);
+        for (int i = 1; i < threads; i++) {
+            this.workers[i] = new Search(board.copy(), table);
+        }
+        this.helpers = threads > 1
+                ? Executors.newFixedThreadPool(threads - 1, Thread.ofPlatform().daemon().name("search-", 1).factory())
+                : null;
+    }
+
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        for (Search worker : workers) {
+            worker.setTablebase(tablebase);
+        }
+    }
+
+    public SearchResult search(SearchLimits limits) {
+        table.newSearch();
+        for (Search worker : workers) {
+            worker.clearStop();
+        }
+        // Helpers stop when the main worker does, the time limit is only a safety net
+        SearchLimits helperLimits = new SearchLimits(0, 0, limits.getTimeMillis());
+        Future<?>[] running = new Future<?>[workers.length];
+        for (int i = 1; i < workers.length; i++) {
+            Search helper = workers[i];
+            helper.getBoard().copyFrom(board);
+            int skew = i & 1;
+            running[i] = helpers.submit(() -> helper.search(helperLimits, skew));
+        }
+
+        SearchResult result = workers[0].search(limits, 0);
+        long nodes = result.getNodes();
+        for (int i = 1; i < workers.length; i++) {
+            workers[i].stop();
+        }
+        for (int i = 1; i < workers.length; i++) {
+            try {
+                running[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for search threads", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search thread failed", e.getCause());
+            }
+            nodes += workers[i].getNodes();
+        }
+        return result.withNodes(nodes);
+    }
+
+    public void stop() {
+        for (Search worker : workers) {
+            worker.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    // Time to depth and nodes/s from the starting position at 1, 2, 4, 8 and 16 threads
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        Board board = new Board();
+        try (TranspositionTable table = new TranspositionTable(megabytes)) {
+            long baseline = 0;
+            for (int threads = 1; threads <= 16; threads *= 2) {
+                board.resetBoard();
+                table.clear();
+                try (ParallelSearch search = new ParallelSearch(board, table, threads)) {
+                    SearchResult result = search.search(SearchLimits.depth(depth));
+                    long elapsed = result.getTimeToDepth(depth);
+                    if (threads == 1) {
+                        baseline = elapsed;
+                    }
+                    System.out.printf("threads %2d: depth %d in %.1f ms (%.2fx), %d nodes, %d nodes/s, best %s%n",
+                            threads, depth, elapsed / 1e6, (double) baseline / Math.max(1, elapsed),
+                            result.getNodes(), result.getNodesPerSecond(), Move.toString(result.getBestMove()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package chess;
+
+import java.io.PrintStream;
+
+public final class Perft {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final Board board;
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+    public Perft(Board board) {
+        this.board = board;
+    }
+
+    // Counts the leaf nodes of the legal move tree below the current position
+    public long count(int depth) {
+        return count(depth, 0);
+    }
+
+    private long count(int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] buffer = moves[ply];
+        int moveCount = MoveGenerator.generateLegal(board, buffer);
+        if (depth == 1) {
+            return moveCount;
+        }
+        long nodes = 0;
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(buffer[i]);
+            nodes += count(depth - 1, ply + 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    // Prints the node count below every root move, the usual way to find a move generation bug
+    public long divide(int depth, PrintStream out) {
+        int[] buffer = moves[0];
+        int moveCount = MoveGenerator.generateLegal(board, buffer);
+        long total = 0;
+        for (int i = 0; i < moveCount; i++) {
+            int move = buffer[i];
+            board.makeMove(move);
+            long nodes = depth <= 1 ? 1 : count(depth - 1, 1);
+            board.unmakeMove();
+            out.println(Move.toString(move) + ": " + nodes);
+            total += nodes;
+        }
+        out.println();
+        out.println("Nodes searched: " + total);
+        return total;
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        boolean divide = false;
+        String fen = Board.START_FEN;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("divide")) {
+                divide = true;
+            } else {
+                fen = args[i];
+            }
+        }
+
+        Board board = Board.fromFen(fen);
+        Perft perft = new Perft(board);
+        if (divide) {
+            perft.divide(depth, System.out);
+            return;
+        }
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = perft.count(d);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.printf("depth %d: %d nodes, %.1f ms, %d nodes/s%n",
+                    d, nodes, elapsed / 1e6, nodes * 1_000_000_000L / elapsed);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the games of a PGN file one at a time. The file is memory-mapped rather than read into
+ * the heap, and tags and moves are handed to the visitor as views into the mapping, so a file of
+ * any size is replayed in constant memory. Comments, variations and annotations are skipped.
+ */
+public final class PgnReader implements AutoCloseable {
+
+    public interface Visitor {
+        default void tag(CharSequence name, CharSequence value) {
+        }
+
+        // Called before the move is played, so the board still shows the position it was made in
+        default void move(Board board, int move) {
+        }
+
+        // The rest of the game is skipped after a move that is not legal in the position
+        default void illegalMove(Board board, CharSequence san) {
+        }
+
+        // A FEN tag that is not a valid position; the game's moves are skipped and the board is left at
+        // the standard start
+        default void invalidFen(CharSequence fen) {
+        }
+
+        default void end(Board board, CharSequence result) {
+        }
+    }
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final long size;
+    private long position;
+
+    private final Board board = new Board();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final ByteSequence token = new ByteSequence();
+    private long tokenStart;
+    private final ByteSequence tagName = new ByteSequence();
+    private final ByteSequence tagValue = new ByteSequence();
+    private long gamesRead;
+    // Set by a bad FEN tag, so the moves of that game are not played
+    private boolean invalidPosition;
+
+    public PgnReader(Path path) throws IOException {
+        this.arena = Arena.ofConfined();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        this.size = data.byteSize();
+    }
+
+    // Reads games that are already in memory, such as a PGN piped in on standard input
+    public PgnReader(MemorySegment data) {
+        this.arena = null;
+        this.data = data;
+        this.size = data.byteSize();
+    }
+
+    public long getGamesRead() {
+        return gamesRead;
+    }
+
+    // Reads the next game; false once the end of the file is reached
+    public boolean readGame(Visitor visitor) {
+        skipWhitespace();
+        if (position >= size) {
+            return false;
+        }
+        board.resetBoard();
+        invalidPosition = false;
+        while (position < size && peek() == '[') {
+            readTag(visitor);
+            skipWhitespace();
+        }
+
+        boolean legal = !invalidPosition;
+        CharSequence result = null;
+        while (result == null) {
+            skipWhitespace();
+            if (position >= size || peek() == '[') {
+                // A game without a result token ends where the next one starts
+                break;
+            }
+            char c = peek();
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == ')' || c == '}') {
+                position++;
+            } else {
+                readToken();
+                if (token.charAt(0) == '$') {
+                    continue;
+                }
+                if (isResult(token)) {
+                    result = token;
+                    continue;
+                }
+                CharSequence san = stripMoveNumber(token);
+                if (san == null || !legal) {
+                    continue;
+                }
+                int move = San.parse(board, san, moves);
+                if (move == Move.NONE) {
+                    legal = false;
+                    visitor.illegalMove(board, san);
+                    continue;
+                }
+                visitor.move(board, move);
+                board.playMove(move);
+            }
+        }
+        gamesRead++;
+        visitor.end(board, result != null ? result : "*");
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+        }
+    }
+
+    private void readTag(Visitor visitor) {
+        position++;
+        skipWhitespace();
+        long nameStart = position;
+        while (position < size && !isWhitespace(peek()) && peek() != '"' && peek() != ']') {
+            position++;
+        }
+        tagName.set(data, nameStart, (int) (position - nameStart));
+        while (position < size && peek() != '"' && peek() != ']') {
+            position++;
+        }
+        long valueStart = position + 1;
+        long valueEnd = valueStart;
+        if (position < size && peek() == '"') {
+            position++;
+            while (position < size && peek() != '"') {
+                // Escaped quotes and backslashes stay in the value as written
+                position += peek() == '\\' ? 2 : 1;
+            }
+            valueEnd = Math.min(position, size);
+        }
+        skipPast(']');
+        tagValue.set(data, valueStart, (int) (valueEnd - valueStart));
+        // Games that start from a set-up position carry it in the FEN tag
+        if (tagName.contentEquals("FEN")) {
+            try {
+                board.loadFen(tagValue);
+            } catch (IllegalArgumentException e) {
+                // One corrupt game must not end the file; it is reported like an illegal move
+                board.resetBoard();
+                invalidPosition = true;
+                visitor.invalidFen(tagValue);
+            }
+        }
+        visitor.tag(tagName, tagValue);
+    }
+
+    private void readToken() {
+        tokenStart = position;
+        while (position < size && !isDelimiter(peek())) {
+            position++;
+        }
+        if (position == tokenStart) {
+            position++;
+        }
+        token.set(data, tokenStart, (int) (position - tokenStart));
+    }
+
+    // "12." and "12..." are dropped and "12.e4" becomes "e4"; null when nothing is left
+    private CharSequence stripMoveNumber(ByteSequence text) {
+        int i = 0;
+        while (i < text.length() && Character.isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == text.length() || text.charAt(i) != '.') {
+            // Castling written with zeros also starts with a digit
+            return i == text.length() ? null : text;
+        }
+        while (i < text.length() && text.charAt(i) == '.') {
+            i++;
+        }
+        if (i == text.length()) {
+            return null;
+        }
+        return token.set(data, tokenStart + i, text.length() - i);
+    }
+
+    private void skipVariation() {
+        int depth = 0;
+        while (position < size) {
+            char c = peek();
+            if (c == '{') {
+                skipPast('}');
+                continue;
+            }
+            position++;
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    private void skipPast(char end) {
+        while (position < size && peek() != end) {
+            position++;
+        }
+        position++;
+    }
+
+    private void skipWhitespace() {
+        while (position < size && isWhitespace(peek())) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        return (char) (data.get(ValueLayout.JAVA_BYTE, position) & 0xFF);
+    }
+
+    static boolean isResult(ByteSequence text) {
+        return text.contentEquals("1-0") || text.contentEquals("0-1") || text.contentEquals("1/2-1/2")
+                || text.contentEquals("*");
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isDelimiter(char c) {
+        return isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';' || c == '[';
+    }
+}
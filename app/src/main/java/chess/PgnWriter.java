@@ -0,0 +1,74 @@
+package chess;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Writes games as PGN: the tags in the order given, then SAN movetext wrapped at 80 columns
+public final class PgnWriter {
+
+    private static final int LINE_LENGTH = 80;
+
+    private final Appendable out;
+    private final Board board = new Board();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+    private final StringBuilder token = new StringBuilder(16);
+
+    public PgnWriter(Appendable out) {
+        this.out = out;
+    }
+
+    // The moves are replayed from the FEN tag's position, or the starting position, to write them in SAN
+    public void writeGame(Map<String, String> tags, int[] gameMoves, int count, String result) throws IOException {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            out.append('[').append(tag.getKey()).append(" \"");
+            appendEscaped(tag.getValue());
+            out.append("\"]\n");
+        }
+        out.append('\n');
+
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            board.loadFen(fen);
+        } else {
+            board.resetBoard();
+        }
+        line.setLength(0);
+        for (int i = 0; i < count; i++) {
+            token.setLength(0);
+            if (board.isWhiteToMove()) {
+                token.append(board.getFullMoveNumber()).append(". ");
+            } else if (i == 0) {
+                token.append(board.getFullMoveNumber()).append("... ");
+            }
+            San.format(board, gameMoves[i], moves, token);
+            board.playMove(gameMoves[i]);
+            appendToken();
+        }
+        token.setLength(0);
+        token.append(result);
+        appendToken();
+        out.append(line).append("\n\n");
+    }
+
+    private void appendToken() throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+            out.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    private void appendEscaped(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+}
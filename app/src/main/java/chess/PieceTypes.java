@@ -10,6 +10,8 @@ public enum PieceTypes {
     NONE,
     ;
 
+    static final PieceTypes[] VALUES = values();
+
     public static PieceTypes fromChar(char c) {
         switch (c) {
             case 'P':
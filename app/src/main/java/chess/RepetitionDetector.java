@@ -0,0 +1,70 @@
+package chess;
+
+public final class RepetitionDetector {
+
+    // Room for the 100 plies the fifty-move rule allows without an irreversible move plus a full
+    // stack of searched moves on top of them
+    private static final int CAPACITY = 512;
+    private static final int MASK = CAPACITY - 1;
+
+    private final long[] keys = new long[CAPACITY];
+    // Index of the first position after the last irreversible move, as of each entry
+    private final int[] starts = new int[CAPACITY];
+    private int count;
+    private int start;
+    // The most entries there have been since the reset; slots below this minus the capacity were
+    // overwritten by positions that were popped again
+    private int highest;
+
+    public void reset(long key) {
+        count = 0;
+        start = 0;
+        highest = 0;
+        push(key, true);
+    }
+
+    public void copyFrom(RepetitionDetector other) {
+        System.arraycopy(other.keys, 0, keys, 0, CAPACITY);
+        System.arraycopy(other.starts, 0, starts, 0, CAPACITY);
+        count = other.count;
+        start = other.start;
+        highest = other.highest;
+    }
+
+    public void push(long key, boolean irreversible) {
+        if (irreversible) {
+            start = count;
+        }
+        keys[count & MASK] = key;
+        starts[count & MASK] = start;
+        count++;
+        highest = Math.max(highest, count);
+    }
+
+    public void pop() {
+        count--;
+        start = starts[(count - 1) & MASK];
+    }
+
+    // Counts earlier occurrences of the current position with the same side to move
+    public int repetitions() {
+        int current = count - 1;
+        long key = keys[current & MASK];
+        int oldest = Math.max(start, highest - CAPACITY);
+        int found = 0;
+        for (int index = current - 2; index >= oldest; index -= 2) {
+            if (keys[index & MASK] == key) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public boolean isRepetition() {
+        return repetitions() >= 1;
+    }
+
+    public boolean isThreefold() {
+        return repetitions() >= 2;
+    }
+}
@@ -0,0 +1,172 @@
+package chess;
+
+/**
+ * Standard algebraic notation ("Nf3", "exd5", "e8=Q+", "O-O") for packed moves. Parsing reads
+ * any CharSequence, so it works on views of a mapped file as well as on strings, and allocates
+ * nothing; the caller passes the move buffer to generate into.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    // Returns the legal move the text names in this position, or Move.NONE if there is none or it is ambiguous
+    public static int parse(Board board, CharSequence text, int[] moves) {
+        int end = text.length();
+        while (end > 0 && isSuffix(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+        int count = MoveGenerator.generateLegal(board, moves);
+
+        int castle = castleFlag(text, end);
+        if (castle >= 0) {
+            for (int i = 0; i < count; i++) {
+                if (Move.flags(moves[i]) == castle) {
+                    return moves[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int start = 0;
+        PieceTypes piece = PieceTypes.fromChar(text.charAt(0));
+        if (piece == PieceTypes.NONE) {
+            piece = PieceTypes.PAWN;
+        } else {
+            start = 1;
+        }
+        PieceTypes promotion = PieceTypes.NONE;
+        if (piece == PieceTypes.PAWN) {
+            PieceTypes promoted = PieceTypes.fromChar(text.charAt(end - 1));
+            if (promoted != PieceTypes.NONE && promoted != PieceTypes.PAWN && promoted != PieceTypes.KING) {
+                promotion = promoted;
+                end--;
+                if (end > 0 && text.charAt(end - 1) == '=') {
+                    end--;
+                }
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int toFile = text.charAt(end - 2) - 'a';
+        int toRank = text.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return Move.NONE;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int to = Bitboards.square(toRank, toFile);
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || board.pieceAt(from) % 6 != piece.ordinal()
+                    || fromFile >= 0 && Bitboards.file(from) != fromFile
+                    || fromRank >= 0 && Bitboards.rank(from) != fromRank
+                    || Move.isPromotion(move) != (promotion != PieceTypes.NONE)
+                    || Move.isPromotion(move) && Move.promotionType(move) != promotion
+                    || Move.isCastle(move)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    // Appends the move as SAN with a check or mate suffix; the move must be legal in this position
+    public static void format(Board board, int move, int[] moves, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = board.pieceAt(from) % 6;
+
+        if (Move.isCastle(move)) {
+            out.append(Move.flags(move) == Move.KING_CASTLE ? "O-O" : "O-O-O");
+        } else if (piece == PieceTypes.PAWN.ordinal()) {
+            if (Move.isCapture(move)) {
+                out.append((char) ('a' + Bitboards.file(from))).append('x');
+            }
+            Move.appendSquare(out, to);
+            if (Move.isPromotion(move)) {
+                out.append('=').append(Move.promotionType(move).toChar());
+            }
+        } else {
+            out.append(PieceTypes.VALUES[piece].toChar());
+            appendDisambiguation(board, move, piece, moves, out);
+            if (Move.isCapture(move)) {
+                out.append('x');
+            }
+            Move.appendSquare(out, to);
+        }
+
+        board.makeMove(move);
+        if (board.isInCheck(board.isWhiteToMove())) {
+            out.append(MoveGenerator.generateLegal(board, moves) > 0 ? '+' : '#');
+        }
+        board.unmakeMove();
+    }
+
+    // Adds the origin file, rank or both when another piece of the same type can reach the square
+    private static void appendDisambiguation(Board board, int move, int piece, int[] moves, StringBuilder out) {
+        int from = Move.from(move);
+        int count = MoveGenerator.generateLegal(board, moves);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = moves[i];
+            int otherFrom = Move.from(other);
+            if (otherFrom == from || Move.to(other) != Move.to(move) || board.pieceAt(otherFrom) % 6 != piece) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= Bitboards.file(otherFrom) == Bitboards.file(from);
+            sameRank |= Bitboards.rank(otherFrom) == Bitboards.rank(from);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            out.append((char) ('a' + Bitboards.file(from)));
+        } else if (!sameRank) {
+            out.append((char) ('1' + Bitboards.rank(from)));
+        } else {
+            Move.appendSquare(out, from);
+        }
+    }
+
+    // Castling written with letter O or digit zero, or -1 for any other move
+    private static int castleFlag(CharSequence text, int end) {
+        if (end != 3 && end != 5) {
+            return -1;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = text.charAt(i);
+            if (i % 2 == 1 ? c != '-' : c != 'O' && c != '0') {
+                return -1;
+            }
+        }
+        return end == 3 ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+}
@@ -0,0 +1,352 @@
+package chess;
+
+import java.util.Arrays;
+
+public final class Search {
+
+    public static final int MATE = 32000;
+    public static final int MAX_PLY = 128;
+    private static final int INFINITY = MATE + 1;
+    private static final int DRAW = 0;
+    // How many nodes to search between looking at the clock and the node budget
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final int PV_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int KILLER_SCORE = 90_000;
+
+    private final Board board;
+    private final TranspositionTable table;
+    // Exact results for positions with few pieces, or null
+    private Tablebase tablebase;
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+    // The principal variation of the last completed iteration, searched first by the next one
+    private int[] principalLine = new int[0];
+
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private volatile boolean stopped;
+    // Limits and stop requests only take effect once a root move has a score, so there is always a move
+    private boolean rootScored;
+
+    public Search(Board board, TranspositionTable table) {
+        this.board = board;
+        this.table = table;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    void clearStop() {
+        stopped = false;
+    }
+
+    // Iterative deepening: search depth 1, 2, 3... until a limit is hit, keeping the last full result
+    public SearchResult search(SearchLimits limits) {
+        table.newSearch();
+        stopped = false;
+        return search(limits, 0);
+    }
+
+    // Parallel helpers search every iteration one ply deeper so they do not all repeat the same work.
+    // The caller resets the stop flag and ages the shared table first.
+    SearchResult search(SearchLimits limits, int skew) {
+        long start = System.nanoTime();
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        maxNodes = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+        nodes = 0;
+        rootScored = false;
+        principalLine = new int[0];
+        clearHeuristics();
+
+        long[] timeToDepth = new long[maxDepth + 1];
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] principalVariation = new int[0];
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = search(Math.min(depth + skew, MAX_PLY - 1), 0, -INFINITY, INFINITY);
+            if (stopped) {
+                // A partial iteration still searched the previous best move first, so its best move is sound.
+                // A partial depth 1 is not counted as done but is all there is
+                if (pvLength[0] > 0 && pv[0][0] != Move.NONE) {
+                    bestMove = pv[0][0];
+                }
+                if (depth == 1) {
+                    bestScore = score;
+                    principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+                    timeToDepth[0] = System.nanoTime() - start;
+                }
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            bestMove = pvLength[0] > 0 ? pv[0][0] : Move.NONE;
+            principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+            principalLine = principalVariation;
+            timeToDepth[depth] = System.nanoTime() - start;
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start,
+                Arrays.copyOf(timeToDepth, completedDepth + 1), principalVariation);
+    }
+
+    private void clearHeuristics() {
+        for (int[] killer : killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        for (int[] scores : history) {
+            Arrays.fill(scores, 0);
+        }
+    }
+
+    private boolean shouldStop() {
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0 && (nodes >= maxNodes || System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+        return aborted();
+    }
+
+    private boolean aborted() {
+        return stopped && rootScored;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (ply > 0 && (board.isRepetition() || board.getHalfMoveClock() >= 100)) {
+            return DRAW;
+        }
+        if (ply > 0 && tablebase != null && Long.bitCount(board.getOccupied()) <= Tablebase.MAX_PIECES) {
+            int value = tablebase.probe(board);
+            if (value >= 0) {
+                // Scored like a mate found by the search, so shorter wins are still preferred
+                return value == 0 ? DRAW
+                        : Tablebase.isLoss(value) ? -MATE + ply + Tablebase.plies(value) : MATE - ply - value;
+            }
+        }
+        boolean isWhite = board.isWhiteToMove();
+        boolean inCheck = board.isInCheck(isWhite);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiescence(ply, alpha, beta);
+        }
+        nodes++;
+        if (shouldStop()) {
+            return DRAW;
+        }
+
+        long entry = table.probe(board.getKey());
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            // Only null-window nodes take cutoffs, so the principal variation stays intact
+            if (ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+        if (hashMove == Move.NONE && ply < principalLine.length) {
+            hashMove = principalLine[ply];
+        }
+
+        int[] buffer = moves[ply];
+        int count = MoveGenerator.generateLegal(board, buffer);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : DRAW;
+        }
+        scoreMoves(ply, count, hashMove);
+
+        int originalAlpha = alpha;
+        int bestMove = Move.NONE;
+        int bestScore = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            board.makeMove(move);
+
+            int score;
+            if (i == 0) {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Principal variation search: prove the move is worse with a null window first
+                score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            board.unmakeMove();
+            if (aborted()) {
+                // The root's best score so far goes with the move in its principal variation
+                return ply == 0 ? bestScore : DRAW;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            storeKiller(ply, move);
+                            history[board.pieceAt(Move.from(move))][Move.to(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (ply == 0) {
+                rootScored = true;
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(board.getKey(), bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // Mate scores are stored relative to the position rather than to the root
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        nodes++;
+        if (shouldStop()) {
+            return DRAW;
+        }
+        int standPat = Evaluator.evaluate(board);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        int count = MoveGenerator.generateLegalCaptures(board, moves[ply]);
+        scoreMoves(ply, count, Move.NONE);
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(ply, i, count);
+            board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (aborted()) {
+                return DRAW;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private void scoreMoves(int ply, int count, int pvMove) {
+        int[] buffer = moves[ply];
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int score;
+            if (move == pvMove) {
+                score = PV_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                // Most valuable victim, least valuable attacker
+                int victim = Move.isEnPassant(move) ? 0 : board.pieceAt(Move.to(move));
+                int victimValue = victim == Board.EMPTY ? 0 : Evaluator.PIECE_VALUES[victim % 6];
+                int attackerValue = Evaluator.PIECE_VALUES[board.pieceAt(Move.from(move)) % 6];
+                score = CAPTURE_SCORE + victimValue * 10 - attackerValue / 10;
+                if (Move.isPromotion(move)) {
+                    score += Evaluator.PIECE_VALUES[Move.promotionType(move).ordinal()];
+                }
+            } else if (move == killers[ply][0] || move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = Math.min(history[board.pieceAt(Move.from(move))][Move.to(move)], KILLER_SCORE - 1);
+            }
+            scores[i] = score;
+        }
+    }
+
+    // Selection sort one step at a time, since a cutoff usually comes after only a few moves
+    private int pickNext(int ply, int index, int count) {
+        int[] buffer = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = buffer[best];
+        buffer[best] = buffer[index];
+        buffer[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package chess;
+
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final long[] timeToDepth;
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos,
+            long[] timeToDepth, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.timeToDepth = timeToDepth;
+        this.principalVariation = principalVariation;
+    }
+
+    // The same result with the nodes of every thread that took part in the search
+    SearchResult withNodes(long totalNodes) {
+        return new SearchResult(bestMove, score, depth, totalNodes, elapsedNanos, timeToDepth, principalVariation);
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Centipawns from the point of view of the side that was to move
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1_000_000_000L / Math.max(1, elapsedNanos);
+    }
+
+    // Nanoseconds from the start of the search until the given depth was completed
+    public long getTimeToDepth(int depth) {
+        return depth < timeToDepth.length ? timeToDepth[depth] : -1;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + ", score " + score + ", nodes " + nodes + ", "
+                + getNodesPerSecond() + " nodes/s, " + elapsedNanos / 1_000_000 + " ms";
+    }
+}
@@ -0,0 +1,106 @@
+package chess;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opens many sessions in one registry and plays random legal moves in all of them at once,
+ * printing the heap used per session and the latency of each move request.
+ */
+public final class SessionLoadTest {
+
+    private SessionLoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        try (SessionRegistry registry = new SessionRegistry(null)) {
+            long before = usedHeap(memory);
+            long[] ids = new long[sessionCount];
+            for (int i = 0; i < sessionCount; i++) {
+                ids[i] = registry.create().getId();
+            }
+            long after = usedHeap(memory);
+            System.out.printf("%d sessions, %.1f MB heap, %d bytes per session%n",
+                    sessionCount, (after - before) / 1e6, (after - before) / sessionCount);
+
+            long[] latencies = new long[sessionCount * plies];
+            long[] serviceTimes = new long[sessionCount * plies];
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < sessionCount; i++) {
+                    int client = i;
+                    clients.submit(() -> playRandomGame(registry, ids[client], plies, client, latencies, serviceTimes));
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%d moves in %.1f s, %.0f moves/s%n",
+                    latencies.length, elapsed / 1e9, latencies.length * 1e9 / elapsed);
+            // Latency includes waiting for a virtual thread to be scheduled, service time is the move itself
+            printPercentiles("move latency", latencies);
+            printPercentiles("service time", serviceTimes);
+        }
+    }
+
+    private static void playRandomGame(SessionRegistry registry, long id, int plies, int client,
+            long[] latencies, long[] serviceTimes) {
+        Random random = new Random(id);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int ply = 0; ply < plies; ply++) {
+            String move = registry.submit(id, session -> randomMove(session, random, moves)).join();
+            if (move == null) {
+                // Finished games start over so every client keeps making moves
+                registry.submit(id, session -> {
+                    session.start();
+                    return null;
+                }).join();
+                move = registry.submit(id, session -> randomMove(session, random, moves)).join();
+            }
+            String chosen = move;
+            int index = client * plies + ply;
+            long start = System.nanoTime();
+            registry.submit(id, session -> {
+                long serviceStart = System.nanoTime();
+                boolean played = session.makeMove(chosen);
+                serviceTimes[index] = System.nanoTime() - serviceStart;
+                return played;
+            }).join();
+            latencies[index] = System.nanoTime() - start;
+        }
+    }
+
+    private static String randomMove(GameSession session, Random random, int[] moves) {
+        if (session.isOver()) {
+            return null;
+        }
+        int legal = MoveGenerator.generateLegal(session.getBoard(), moves);
+        return legal == 0 ? null : GameSession.toNotation(moves[random.nextInt(legal)]);
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void printPercentiles(String name, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%s: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f ms%n", name,
+                percentile(nanos, 0.50) / 1e3, percentile(nanos, 0.99) / 1e3,
+                percentile(nanos, 0.999) / 1e3, nanos[nanos.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
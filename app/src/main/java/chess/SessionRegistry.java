@@ -0,0 +1,97 @@
+package chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Keeps every live game by id and runs the work submitted to them on virtual threads, so one JVM
+ * can host thousands of games without a platform thread each. Work on one session is serialised
+ * by that session's lock; different sessions proceed in parallel.
+ */
+public final class SessionRegistry implements AutoCloseable {
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MoveJournal journal;
+    private final boolean ownsJournal;
+
+    // Records finished games in the default archive under games/
+    public SessionRegistry() {
+        this(openDefaultJournal(), true);
+    }
+
+    // Sessions record their games through the given journal, or not at all when it is null
+    public SessionRegistry(MoveJournal journal) {
+        this(journal, false);
+    }
+
+    private SessionRegistry(MoveJournal journal, boolean ownsJournal) {
+        this.journal = journal;
+        this.ownsJournal = ownsJournal;
+    }
+
+    public GameSession create() {
+        GameSession session = new GameSession(nextId.getAndIncrement(), journal);
+        session.start();
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    // Removes a finished game; the future completes once it is in the archive on disk
+    public CompletableFuture<Long> end(long id) {
+        GameSession session = sessions.remove(id);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("No session with id " + id));
+        }
+        return session.withLock(GameSession::endGame);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public <T> CompletableFuture<T> submit(long id, Function<GameSession, T> action) {
+        GameSession session = sessions.get(id);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("No session with id " + id));
+        }
+        return CompletableFuture.supplyAsync(() -> session.withLock(action), executor);
+    }
+
+    public CompletableFuture<Boolean> submitMove(long id, String move) {
+        return submit(id, session -> session.makeMove(move));
+    }
+
+    static MoveJournal openDefaultJournal() {
+        try {
+            return new MoveJournal(new GameArchive(Path.of(GameArchive.DEFAULT_DIRECTORY), GameArchive.DEFAULT_NAME));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Games still being played are recorded as they stand
+    @Override
+    public void close() {
+        executor.close();
+        for (GameSession session : sessions.values()) {
+            session.withLock(GameSession::endGame);
+        }
+        sessions.clear();
+        if (ownsJournal) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact results for positions with at most four pieces, read from the files written by
+ * {@link TablebaseGenerator}. Each material set ("KQKR": white king and queen against black king
+ * and rook) has a win/draw/loss file with two bits per position and a distance-to-mate file with
+ * one byte per position; both are memory-mapped, so a probe is an index computation and one read.
+ * Positions with the colours reversed are looked up in the same table mirrored. Safe to use from
+ * several threads.
+ */
+public final class Tablebase implements AutoCloseable {
+
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = -2;
+    public static final int MAX_PIECES = 4;
+
+    static final int DTM_MAGIC = 0x4D544454;
+    static final int WDL_MAGIC = 0x4C445754;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    // Per-position values in the distance-to-mate file, from the side to move: 0 is a draw, 1..127 a win
+    // in that many plies, 128 + n a loss in n plies and ILLEGAL a position that cannot occur
+    static final int LOSS_BASE = 128;
+    static final int ILLEGAL = 255;
+    // Two-bit codes in the win/draw/loss file
+    static final int WDL_DRAW = 0;
+    static final int WDL_WIN = 1;
+    static final int WDL_LOSS = 2;
+    static final int WDL_ILLEGAL = 3;
+
+    // Non-king pieces from strongest to weakest, the order they take within each side of a table
+    static final PieceTypes[] ORDER = {PieceTypes.QUEEN, PieceTypes.ROOK, PieceTypes.BISHOP, PieceTypes.KNIGHT,
+            PieceTypes.PAWN};
+    // One side's pieces in ORDER as base-6 digits (1 for a queen ... 5 for a pawn); two pieces at most
+    static final int SIDE_CODES = 36;
+    static final int MATERIAL_CODES = SIDE_CODES * SIDE_CODES;
+    // Whether a material code, white side * SIDE_CODES + black side, is the orientation tables are stored in
+    static final boolean[] CANONICAL = new boolean[MATERIAL_CODES];
+
+    static {
+        for (int white = 0; white < SIDE_CODES; white++) {
+            for (int black = 0; black < SIDE_CODES; black++) {
+                CANONICAL[white * SIDE_CODES + black] = compareSides(white, black) >= 0;
+            }
+        }
+    }
+
+    private static final class Table {
+        final MemorySegment dtm;
+        final MemorySegment wdl;
+
+        Table(MemorySegment dtm, MemorySegment wdl) {
+            this.dtm = dtm;
+            this.wdl = wdl;
+        }
+    }
+
+    private final Arena arena = Arena.ofShared();
+    private final Table[] tables = new Table[MATERIAL_CODES];
+    private int tableCount;
+
+    // Maps every table found in the directory
+    public Tablebase(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.dtm")) {
+            for (Path dtm : files) {
+                String name = dtm.getFileName().toString().replaceFirst("\\.dtm$", "");
+                Path wdl = dtm.resolveSibling(name + ".wdl");
+                int code = materialCode(name);
+                if (code < 0 || !CANONICAL[code] || !Files.exists(wdl)) {
+                    continue;
+                }
+                int pieces = pieceCount(code);
+                tables[code] = new Table(map(dtm, DTM_MAGIC, positions(pieces)),
+                        map(wdl, WDL_MAGIC, (positions(pieces) + 3) / 4));
+                tableCount++;
+            }
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    // WIN, DRAW or LOSS for the side to move, or UNKNOWN when the position is not covered
+    public int probeWdl(Board board) {
+        int code = materialCode(board);
+        if (code < 0) {
+            return UNKNOWN;
+        }
+        if (code == 0) {
+            return DRAW;
+        }
+        Table table = tables[CANONICAL[code] ? code : flip(code)];
+        if (table == null) {
+            return UNKNOWN;
+        }
+        int index = index(board, !CANONICAL[code]);
+        int bits = (table.wdl.get(ValueLayout.JAVA_BYTE, HEADER_BYTES + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+        return switch (bits) {
+            case WDL_WIN -> WIN;
+            case WDL_LOSS -> LOSS;
+            case WDL_DRAW -> DRAW;
+            default -> UNKNOWN;
+        };
+    }
+
+    // Plies to mate for a won or lost position, 0 for a draw and -1 when the position is not covered
+    public int probeDtm(Board board) {
+        int value = probe(board);
+        if (value < 0) {
+            return -1;
+        }
+        return value == 0 ? 0 : plies(value);
+    }
+
+    // The move that wins fastest, or failing that draws, or failing that loses slowest; Move.NONE if not covered
+    public int bestMove(Board board) {
+        if (probe(board) < 0) {
+            return Move.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            int value = probe(board);
+            board.unmakeMove();
+            if (value < 0) {
+                continue;
+            }
+            // Ranked from our side: the opponent's fastest loss first, their slowest win last
+            int rank = value == 0 ? 0 : isLoss(value) ? 1000 - plies(value) : plies(value) - 1000;
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // The distance-to-mate value of the position, or -1 when it is not covered
+    int probe(Board board) {
+        int code = materialCode(board);
+        if (code < 0) {
+            return -1;
+        }
+        if (code == 0) {
+            return 0;
+        }
+        Table table = tables[CANONICAL[code] ? code : flip(code)];
+        if (table == null) {
+            return -1;
+        }
+        return table.dtm.get(ValueLayout.JAVA_BYTE, HEADER_BYTES + index(board, !CANONICAL[code])) & 0xFF;
+    }
+
+    static boolean isLoss(int value) {
+        return value >= LOSS_BASE;
+    }
+
+    static int plies(int value) {
+        return value >= LOSS_BASE ? value - LOSS_BASE : value;
+    }
+
+    static int positions(int pieces) {
+        return 2 << (6 * pieces);
+    }
+
+    static int pieceCount(int code) {
+        return 2 + sideCount(code / SIDE_CODES) + sideCount(code % SIDE_CODES);
+    }
+
+    static int flip(int code) {
+        return (code % SIDE_CODES) * SIDE_CODES + code / SIDE_CODES;
+    }
+
+    static int digit(PieceTypes type) {
+        for (int i = 0; i < ORDER.length; i++) {
+            if (ORDER[i] == type) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("No tablebase digit for " + type);
+    }
+
+    // "KQKR" to its material code, or -1 if the name is not a table of at most MAX_PIECES pieces
+    static int materialCode(String name) {
+        int second = name.indexOf('K', 1);
+        if (!name.startsWith("K") || second < 0 || name.length() > MAX_PIECES) {
+            return -1;
+        }
+        int white = sideCode(name.substring(1, second));
+        int black = sideCode(name.substring(second + 1));
+        return white < 0 || black < 0 ? -1 : white * SIDE_CODES + black;
+    }
+
+    static String name(int code) {
+        return "K" + sideName(code / SIDE_CODES) + "K" + sideName(code % SIDE_CODES);
+    }
+
+    // Index of a position: side to move, then white king, black king and the other pieces in table order
+    static int index(boolean whiteToMove, int[] squares, int count) {
+        int index = whiteToMove ? 0 : 1;
+        for (int i = 0; i < count; i++) {
+            index = index * 64 + squares[i];
+        }
+        return index;
+    }
+
+    // Material code of the board, or -1 with more than MAX_PIECES pieces, castling rights or a capturable en passant pawn
+    private static int materialCode(Board board) {
+        if (Long.bitCount(board.getOccupied()) > MAX_PIECES || board.getCastlingRights() != 0) {
+            return -1;
+        }
+        int enPassant = board.getEnPassantSquare();
+        boolean isWhite = board.isWhiteToMove();
+        if (enPassant >= 0 && (Attacks.pawn(enPassant, !isWhite) & board.getPieces(PieceTypes.PAWN, isWhite)) != 0) {
+            return -1;
+        }
+        return sideCode(board, true) * SIDE_CODES + sideCode(board, false);
+    }
+
+    private static int sideCode(Board board, boolean isWhite) {
+        int code = 0;
+        for (int i = 0; i < ORDER.length; i++) {
+            for (int n = Long.bitCount(board.getPieces(ORDER[i], isWhite)); n > 0; n--) {
+                code = code * 6 + i + 1;
+            }
+        }
+        return code;
+    }
+
+    // Index of the board in its table, reading black as white and mirroring the ranks when flipped
+    private static int index(Board board, boolean flip) {
+        int mirror = flip ? 56 : 0;
+        int index = board.isWhiteToMove() != flip ? 0 : 1;
+        index = index * 64 + (board.getKingSquare(!flip) ^ mirror);
+        index = index * 64 + (board.getKingSquare(flip) ^ mirror);
+        for (int side = 0; side < 2; side++) {
+            boolean isWhite = (side == 0) != flip;
+            for (PieceTypes type : ORDER) {
+                for (long pieces = board.getPieces(type, isWhite); pieces != 0; pieces &= pieces - 1) {
+                    index = index * 64 + (Long.numberOfTrailingZeros(pieces) ^ mirror);
+                }
+            }
+        }
+        return index;
+    }
+
+    private static int sideCode(String pieces) {
+        if (pieces.length() > 2) {
+            return -1;
+        }
+        int code = 0;
+        int previous = 0;
+        for (int i = 0; i < pieces.length(); i++) {
+            PieceTypes type = PieceTypes.fromChar(pieces.charAt(i));
+            if (type == PieceTypes.NONE || type == PieceTypes.KING) {
+                return -1;
+            }
+            int digit = digit(type);
+            if (digit < previous) {
+                // Pieces must be listed strongest first so every material set has one name
+                return -1;
+            }
+            previous = digit;
+            code = code * 6 + digit;
+        }
+        return code;
+    }
+
+    static boolean hasPawns(int sideCode) {
+        for (int code = sideCode; code != 0; code /= 6) {
+            if (ORDER[code % 6 - 1] == PieceTypes.PAWN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String sideName(int code) {
+        return code == 0 ? "" : sideName(code / 6) + ORDER[code % 6 - 1].toChar();
+    }
+
+    private static int sideCount(int code) {
+        return code == 0 ? 0 : code < 6 ? 1 : 2;
+    }
+
+    // More pieces is stronger; otherwise the side whose strongest differing piece is stronger
+    private static int compareSides(int white, int black) {
+        if (sideCount(white) != sideCount(black)) {
+            return Integer.compare(sideCount(white), sideCount(black));
+        }
+        if (sideCount(white) == 2 && white / 6 != black / 6) {
+            return Integer.compare(black / 6, white / 6);
+        }
+        return Integer.compare(black % 6, white % 6);
+    }
+
+    private MemorySegment map(Path path, int magic, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            ValueLayout.OfInt layout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+            if (segment.byteSize() != HEADER_BYTES + bytes || segment.get(layout, 0) != magic
+                    || segment.get(layout, 4) != VERSION) {
+                throw new IOException("Not a tablebase file of version " + VERSION + ": " + path);
+            }
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,628 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds {@link Tablebase} files by retrograde analysis. One pass over every position of a table
+ * counts the moves each side has, finds the mates and looks up captures and promotions in the
+ * smaller or already built tables they lead to. From the mates outwards, every position whose
+ * value is known then un-moves to its predecessors: a predecessor of a lost position is won one
+ * ply later, and a predecessor all of whose moves lead to won positions is lost. Both passes are
+ * split over a fork/join pool; tables a material set converts into are built first.
+ *
+ * <p>Positions are indexed by side to move and the square of every piece, without symmetry
+ * reduction, so a four-piece table is 32 MB of distances plus 8 MB of win/draw/loss bits. En
+ * passant is not modelled, so material sets with pawns on both sides are refused.
+ */
+public final class TablebaseGenerator {
+
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final int SPLIT = 1 << 14;
+    // Move count of a position that has a capture or promotion which does not lose, so it can never be lost
+    private static final byte CANNOT_LOSE = 127;
+    private static final int MAX_LAYERS = 256;
+    private static final PieceTypes[] PROMOTIONS = {PieceTypes.QUEEN, PieceTypes.ROOK, PieceTypes.BISHOP,
+            PieceTypes.KNIGHT};
+
+    private final ForkJoinPool pool;
+    // Finished tables by material code
+    private final byte[][] tables = new byte[Tablebase.MATERIAL_CODES][];
+    private final List<String> generated = new ArrayList<>();
+
+    public TablebaseGenerator(int threads) {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    // Distance-to-mate values for the table, building every table it converts into first
+    public byte[] generate(String name) {
+        int code = Tablebase.materialCode(name);
+        if (code < 0) {
+            throw new IllegalArgumentException("Not a table of at most " + Tablebase.MAX_PIECES + " pieces: " + name);
+        }
+        if (!Tablebase.CANONICAL[code]) {
+            throw new IllegalArgumentException("Tables are named with the stronger side first: "
+                    + Tablebase.name(Tablebase.flip(code)));
+        }
+        if (Tablebase.hasPawns(code / Tablebase.SIDE_CODES) && Tablebase.hasPawns(code % Tablebase.SIDE_CODES)) {
+            // Neither moves nor un-moves include en passant, so a pawn on each side would give wrong values
+            throw new IllegalArgumentException("Tables with pawns on both sides are not supported: " + name);
+        }
+        return generate(code);
+    }
+
+    // Names of every table built so far, each after the tables it depends on
+    public List<String> getGenerated() {
+        return List.copyOf(generated);
+    }
+
+    public static void write(Path directory, String name, byte[] values) throws IOException {
+        Files.createDirectories(directory);
+        ByteBuffer wdl = ByteBuffer.allocate((values.length + 3) / 4);
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i] & 0xFF;
+            int bits = value == Tablebase.ILLEGAL ? Tablebase.WDL_ILLEGAL
+                    : value == 0 ? Tablebase.WDL_DRAW
+                    : Tablebase.isLoss(value) ? Tablebase.WDL_LOSS : Tablebase.WDL_WIN;
+            wdl.put(i >>> 2, (byte) (wdl.get(i >>> 2) | bits << ((i & 3) * 2)));
+        }
+        writeFile(directory.resolve(name + ".dtm"), Tablebase.DTM_MAGIC, ByteBuffer.wrap(values));
+        writeFile(directory.resolve(name + ".wdl"), Tablebase.WDL_MAGIC, wdl);
+    }
+
+    private byte[] generate(int code) {
+        if (code == 0 || tables[code] != null) {
+            return tables[code];
+        }
+        Table table = new Table(code);
+        // Captures and promotions leave this table; their results must exist before it can be built
+        for (int dependency : table.dependencies()) {
+            generate(Tablebase.CANONICAL[dependency] ? dependency : Tablebase.flip(dependency));
+        }
+        pool.invoke(new Initialise(table, 0, table.values.length));
+        for (int layer = 0; layer < MAX_LAYERS; layer++) {
+            IntList candidates = table.candidates[layer];
+            for (int i = 0; candidates != null && i < candidates.size; i++) {
+                int index = candidates.values[i];
+                if (BYTES.compareAndSet(table.values, index, (byte) 0, encodeWin(layer))) {
+                    table.layer(layer).add(index);
+                }
+            }
+            IntList positions = table.layers[layer];
+            if (positions != null) {
+                pool.invoke(new Propagate(table, layer, positions.values, 0, positions.size));
+                table.layers[layer] = null;
+            }
+        }
+        tables[code] = table.values;
+        generated.add(Tablebase.name(code));
+        return table.values;
+    }
+
+    private static byte encodeWin(int plies) {
+        if (plies >= Tablebase.LOSS_BASE) {
+            throw new IllegalStateException("Mate too long to store: " + plies + " plies");
+        }
+        return (byte) plies;
+    }
+
+    private static byte encodeLoss(int plies) {
+        if (plies >= Tablebase.ILLEGAL - Tablebase.LOSS_BASE) {
+            throw new IllegalStateException("Mate too long to store: " + plies + " plies");
+        }
+        return (byte) (Tablebase.LOSS_BASE + plies);
+    }
+
+    private static void writeFile(Path path, int magic, ByteBuffer body) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(magic).putInt(Tablebase.VERSION).flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    // The table being built: its pieces in index order and the per-position state of the analysis
+    private final class Table {
+        final int pieces;
+        final PieceTypes[] types;
+        final boolean[] white;
+        final byte[] values;
+        // Moves not yet known to lead to a won position for the opponent
+        final byte[] counts;
+        // The longest win a capture or promotion hands the opponent
+        final byte[] conversionWins;
+        final IntList[] layers = new IntList[MAX_LAYERS];
+        // Positions a capture or promotion wins in that many plies, unless something faster is found first
+        final IntList[] candidates = new IntList[MAX_LAYERS];
+
+        Table(int code) {
+            this.pieces = Tablebase.pieceCount(code);
+            this.types = new PieceTypes[pieces];
+            this.white = new boolean[pieces];
+            types[0] = PieceTypes.KING;
+            white[0] = true;
+            types[1] = PieceTypes.KING;
+            int slot = 2;
+            for (int side = 0; side < 2; side++) {
+                int sideCode = side == 0 ? code / Tablebase.SIDE_CODES : code % Tablebase.SIDE_CODES;
+                int first = slot;
+                for (; sideCode != 0; sideCode /= 6) {
+                    types[slot] = Tablebase.ORDER[sideCode % 6 - 1];
+                    white[slot++] = side == 0;
+                }
+                // Digits were read weakest first
+                for (int i = first, j = slot - 1; i < j; i++, j--) {
+                    PieceTypes type = types[i];
+                    types[i] = types[j];
+                    types[j] = type;
+                }
+            }
+            int size = Tablebase.positions(pieces);
+            this.values = new byte[size];
+            this.counts = new byte[size];
+            this.conversionWins = new byte[size];
+        }
+
+        // Material codes reachable by a capture, a promotion or a capture that promotes; -1 stands for neither
+        List<Integer> dependencies() {
+            List<Integer> codes = new ArrayList<>();
+            PieceTypes[] child = Arrays.copyOf(types, pieces);
+            for (int captured = -1; captured < pieces; captured++) {
+                for (int promoted = -1; promoted < pieces; promoted++) {
+                    if (captured >= 0 && captured < 2 || captured == -1 && promoted == -1
+                            || promoted >= 0 && (promoted == captured || types[promoted] != PieceTypes.PAWN)) {
+                        continue;
+                    }
+                    for (int option = 0; option < (promoted >= 0 ? PROMOTIONS.length : 1); option++) {
+                        if (promoted >= 0) {
+                            child[promoted] = PROMOTIONS[option];
+                        }
+                        int code = materialCode(child, white, captured, pieces);
+                        if (code != 0 && !codes.contains(code)) {
+                            codes.add(code);
+                        }
+                    }
+                    if (promoted >= 0) {
+                        child[promoted] = types[promoted];
+                    }
+                }
+            }
+            return codes;
+        }
+
+        synchronized IntList layer(int layer) {
+            if (layers[layer] == null) {
+                layers[layer] = new IntList();
+            }
+            return layers[layer];
+        }
+
+        synchronized void merge(IntList[] local, IntList[] into) {
+            for (int i = 0; i < MAX_LAYERS; i++) {
+                if (local[i] != null) {
+                    if (into[i] == null) {
+                        into[i] = new IntList();
+                    }
+                    into[i].addAll(local[i]);
+                }
+            }
+        }
+
+        int index(boolean whiteToMove, int[] squares) {
+            return Tablebase.index(whiteToMove, squares, pieces);
+        }
+
+        void decode(int index, int[] squares) {
+            for (int i = pieces - 1; i >= 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+        }
+
+        boolean whiteToMove(int index) {
+            return index >>> (6 * pieces) == 0;
+        }
+
+        long occupancy(int[] squares, int side) {
+            long occupied = 0;
+            for (int i = 0; i < pieces; i++) {
+                if (squares[i] >= 0 && (side < 0 || white[i] == (side == 0))) {
+                    occupied |= 1L << squares[i];
+                }
+            }
+            return occupied;
+        }
+
+        int pieceOn(int[] squares, int square) {
+            for (int i = 0; i < pieces; i++) {
+                if (squares[i] == square) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean isAttacked(int square, boolean byWhite, int[] squares, long occupied) {
+            for (int i = 0; i < pieces; i++) {
+                if (white[i] == byWhite && squares[i] >= 0
+                        && (attacks(types[i], byWhite, squares[i], occupied) & 1L << square) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isLegal(int index, int[] squares) {
+            for (int i = 0; i < pieces; i++) {
+                for (int j = i + 1; j < pieces; j++) {
+                    if (squares[i] == squares[j]) {
+                        return false;
+                    }
+                }
+                int rank = Bitboards.rank(squares[i]);
+                if (types[i] == PieceTypes.PAWN && (rank == 0 || rank == 7)) {
+                    return false;
+                }
+            }
+            // The side that just moved cannot be left in check
+            boolean whiteToMove = whiteToMove(index);
+            return !isAttacked(squares[whiteToMove ? 1 : 0], whiteToMove, squares, occupancy(squares, -1));
+        }
+    }
+
+    private static long attacks(PieceTypes type, boolean isWhite, int square, long occupied) {
+        return switch (type) {
+            case KING -> Attacks.king(square);
+            case KNIGHT -> Attacks.knight(square);
+            case BISHOP -> Attacks.bishop(square, occupied);
+            case ROOK -> Attacks.rook(square, occupied);
+            case QUEEN -> Attacks.queen(square, occupied);
+            case PAWN -> Attacks.pawn(square, isWhite);
+            default -> 0L;
+        };
+    }
+
+    // Material code of the pieces left after a capture, with the slot of the captured piece skipped
+    private static int materialCode(PieceTypes[] types, boolean[] white, int skipped, int pieces) {
+        int whiteCode = 0;
+        int blackCode = 0;
+        for (PieceTypes type : Tablebase.ORDER) {
+            for (int i = 2; i < pieces; i++) {
+                if (i != skipped && types[i] == type) {
+                    if (white[i]) {
+                        whiteCode = whiteCode * 6 + Tablebase.digit(type);
+                    } else {
+                        blackCode = blackCode * 6 + Tablebase.digit(type);
+                    }
+                }
+            }
+        }
+        return whiteCode * Tablebase.SIDE_CODES + blackCode;
+    }
+
+    // Counts the moves of every position, finds mates and stalemates and scores captures and promotions
+    private final class Initialise extends RecursiveAction {
+        private final Table table;
+        private final int from;
+        private final int to;
+        private final int[] converted = new int[Tablebase.MAX_PIECES];
+
+        Initialise(Table table, int from, int to) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Initialise(table, from, middle), new Initialise(table, middle, to));
+                return;
+            }
+            IntList[] layers = new IntList[MAX_LAYERS];
+            IntList[] candidates = new IntList[MAX_LAYERS];
+            int[] squares = new int[table.pieces];
+            int[] child = new int[table.pieces];
+            PieceTypes[] childTypes = new PieceTypes[table.pieces];
+            for (int index = from; index < to; index++) {
+                table.decode(index, squares);
+                if (!table.isLegal(index, squares)) {
+                    table.values[index] = (byte) Tablebase.ILLEGAL;
+                    continue;
+                }
+                initialise(index, squares, child, childTypes, layers, candidates);
+            }
+            table.merge(layers, table.layers);
+            table.merge(candidates, table.candidates);
+        }
+
+        private void initialise(int index, int[] squares, int[] child, PieceTypes[] childTypes, IntList[] layers,
+                IntList[] candidates) {
+            boolean isWhite = table.whiteToMove(index);
+            int king = isWhite ? 0 : 1;
+            long occupied = table.occupancy(squares, -1);
+            long own = table.occupancy(squares, isWhite ? 0 : 1);
+            long enemy = occupied & ~own;
+            int moves = 0;
+            int quiet = 0;
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = -1;
+            boolean canLose = true;
+
+            for (int piece = 0; piece < table.pieces; piece++) {
+                if (table.white[piece] != isWhite) {
+                    continue;
+                }
+                int from = squares[piece];
+                long targets = targets(table.types[piece], isWhite, from, occupied, own, enemy);
+                for (; targets != 0; targets &= targets - 1) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    int captured = table.pieceOn(squares, to);
+                    System.arraycopy(squares, 0, child, 0, table.pieces);
+                    child[piece] = to;
+                    if (captured >= 0) {
+                        child[captured] = -1;
+                    }
+                    long childOccupied = table.occupancy(child, -1);
+                    if (table.isAttacked(child[king], !isWhite, child, childOccupied)) {
+                        continue;
+                    }
+                    moves++;
+                    int rank = Bitboards.rank(to);
+                    boolean promotes = table.types[piece] == PieceTypes.PAWN && (rank == 0 || rank == 7);
+                    if (captured < 0 && !promotes) {
+                        quiet++;
+                        continue;
+                    }
+                    for (int option = 0; option < (promotes ? PROMOTIONS.length : 1); option++) {
+                        System.arraycopy(table.types, 0, childTypes, 0, table.pieces);
+                        if (promotes) {
+                            childTypes[piece] = PROMOTIONS[option];
+                        }
+                        int value = convert(child, childTypes, captured, !isWhite);
+                        if (value == 0) {
+                            canLose = false;
+                        } else if (Tablebase.isLoss(value)) {
+                            canLose = false;
+                            fastestWin = Math.min(fastestWin, Tablebase.plies(value) + 1);
+                        } else {
+                            slowestLoss = Math.max(slowestLoss, value);
+                        }
+                    }
+                }
+            }
+
+            if (moves == 0) {
+                if (table.isAttacked(squares[king], !isWhite, squares, occupied)) {
+                    table.values[index] = encodeLoss(0);
+                    add(layers, 0, index);
+                }
+                return;
+            }
+            if (fastestWin != Integer.MAX_VALUE) {
+                add(candidates, fastestWin, index);
+            }
+            if (!canLose) {
+                table.counts[index] = CANNOT_LOSE;
+            } else if (quiet == 0) {
+                // Every move is a capture or promotion into a won position for the opponent
+                table.values[index] = encodeLoss(slowestLoss + 1);
+                add(layers, slowestLoss + 1, index);
+            } else {
+                table.counts[index] = (byte) quiet;
+                table.conversionWins[index] = (byte) Math.max(slowestLoss, 0);
+            }
+        }
+
+        // Value of the position after a capture or promotion, looked up in the table it converts into
+        private int convert(int[] child, PieceTypes[] childTypes, int captured, boolean whiteToMove) {
+            int code = materialCode(childTypes, table.white, captured, table.pieces);
+            if (code == 0) {
+                return 0;
+            }
+            boolean flip = !Tablebase.CANONICAL[code];
+            byte[] values = tables[flip ? Tablebase.flip(code) : code];
+            int mirror = flip ? 56 : 0;
+            int[] squares = converted;
+            int slot = 0;
+            squares[slot++] = child[flip ? 1 : 0] ^ mirror;
+            squares[slot++] = child[flip ? 0 : 1] ^ mirror;
+            for (int side = 0; side < 2; side++) {
+                boolean white = (side == 0) != flip;
+                for (PieceTypes type : Tablebase.ORDER) {
+                    for (int i = 2; i < table.pieces; i++) {
+                        if (i != captured && table.white[i] == white && childTypes[i] == type) {
+                            squares[slot++] = child[i] ^ mirror;
+                        }
+                    }
+                }
+            }
+            return values[Tablebase.index(whiteToMove != flip, squares, slot)] & 0xFF;
+        }
+    }
+
+    // Moves, or for un-moves the squares a piece can have come from; pawns handled separately
+    private static long targets(PieceTypes type, boolean isWhite, int from, long occupied, long own, long enemy) {
+        if (type != PieceTypes.PAWN) {
+            return attacks(type, isWhite, from, occupied) & ~own;
+        }
+        int forward = isWhite ? 8 : -8;
+        long targets = Attacks.pawn(from, isWhite) & enemy;
+        int single = from + forward;
+        if ((occupied & 1L << single) == 0) {
+            targets |= 1L << single;
+            int startRank = isWhite ? 1 : 6;
+            if (Bitboards.rank(from) == startRank && (occupied & 1L << (single + forward)) == 0) {
+                targets |= 1L << (single + forward);
+            }
+        }
+        return targets;
+    }
+
+    // Hands the positions of one layer's value to the positions that can move into them
+    private final class Propagate extends RecursiveAction {
+        private final Table table;
+        private final int layer;
+        private final int[] positions;
+        private final int from;
+        private final int to;
+
+        Propagate(Table table, int layer, int[] positions, int from, int to) {
+            this.table = table;
+            this.layer = layer;
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT / 16) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Propagate(table, layer, positions, from, middle),
+                        new Propagate(table, layer, positions, middle, to));
+                return;
+            }
+            IntList[] next = new IntList[MAX_LAYERS];
+            int[] squares = new int[table.pieces];
+            for (int i = from; i < to; i++) {
+                int index = positions[i];
+                boolean lost = Tablebase.isLoss(table.values[index] & 0xFF);
+                boolean moverIsWhite = !table.whiteToMove(index);
+                table.decode(index, squares);
+                long occupied = table.occupancy(squares, -1);
+                for (int piece = 0; piece < table.pieces; piece++) {
+                    if (table.white[piece] != moverIsWhite) {
+                        continue;
+                    }
+                    int square = squares[piece];
+                    for (long origins = origins(table.types[piece], moverIsWhite, square, occupied); origins != 0;
+                            origins &= origins - 1) {
+                        squares[piece] = Long.numberOfTrailingZeros(origins);
+                        update(table.index(moverIsWhite, squares), lost, next);
+                    }
+                    squares[piece] = square;
+                }
+            }
+            table.merge(next, table.layers);
+        }
+
+        private void update(int predecessor, boolean lost, IntList[] next) {
+            if (table.values[predecessor] != 0) {
+                return;
+            }
+            if (lost) {
+                if (BYTES.compareAndSet(table.values, predecessor, (byte) 0, encodeWin(layer + 1))) {
+                    add(next, layer + 1, predecessor);
+                }
+                return;
+            }
+            if (decrement(table.counts, predecessor) == 0) {
+                int plies = Math.max(layer, table.conversionWins[predecessor]) + 1;
+                if (BYTES.compareAndSet(table.values, predecessor, (byte) 0, encodeLoss(plies))) {
+                    add(next, plies, predecessor);
+                }
+            }
+        }
+    }
+
+    // Atomic decrement, returning the new count
+    private static int decrement(byte[] counts, int index) {
+        byte count;
+        do {
+            count = (byte) BYTES.getVolatile(counts, index);
+        } while (!BYTES.compareAndSet(counts, index, count, (byte) (count - 1)));
+        return count - 1;
+    }
+
+    // Squares a piece now on the square can have moved from without capturing or promoting
+    private static long origins(PieceTypes type, boolean isWhite, int square, long occupied) {
+        if (type != PieceTypes.PAWN) {
+            return attacks(type, isWhite, square, occupied) & ~occupied;
+        }
+        int back = isWhite ? -8 : 8;
+        int single = square + back;
+        int rank = Bitboards.rank(single);
+        if (rank == 0 || rank == 7 || (occupied & 1L << single) != 0) {
+            return 0;
+        }
+        long origins = 1L << single;
+        if (Bitboards.rank(square) == (isWhite ? 3 : 4) && (occupied & 1L << (single + back)) == 0) {
+            origins |= 1L << (single + back);
+        }
+        return origins;
+    }
+
+    private static void add(IntList[] lists, int layer, int index) {
+        if (layer >= MAX_LAYERS) {
+            throw new IllegalStateException("Mate too long to store: " + layer + " plies");
+        }
+        if (lists[layer] == null) {
+            lists[layer] = new IntList();
+        }
+        lists[layer].add(index);
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+
+    // Usage: TablebaseGenerator <directory> [table...]; builds every three-piece table and KQKR by default.
+    // The tables each one converts into are built and written too.
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "tablebases");
+        List<String> names = args.length > 1 ? List.of(args).subList(1, args.length)
+                : List.of("KQK", "KRK", "KBK", "KNK", "KPK", "KQKR");
+        TablebaseGenerator generator = new TablebaseGenerator(Runtime.getRuntime().availableProcessors());
+        long total = System.nanoTime();
+        int written = 0;
+        for (String name : names) {
+            long start = System.nanoTime();
+            generator.generate(name);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            List<String> built = generator.getGenerated();
+            for (; written < built.size(); written++) {
+                byte[] values = generator.generate(built.get(written));
+                write(directory, built.get(written), values);
+                System.out.printf("%-6s %,12d positions%n", built.get(written), values.length);
+            }
+            System.out.printf("%-6s built in %d ms%n", name, millis);
+        }
+        System.out.printf("Done in %d ms%n", (System.nanoTime() - total) / 1_000_000);
+    }
+}
@@ -0,0 +1,143 @@
+package chess;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Fixed-size hash table of search results, kept off-heap so large tables add nothing to GC work.
+ *
+ * <p>Entries are two longs: the key XORed with the data, then the data. A reader only trusts an
+ * entry when both halves XOR back to its own key, so threads can share the table without locks;
+ * a torn write from a racing thread simply looks like a miss. Four entries share a 64-byte bucket.
+ *
+ * <p>Data layout: move in bits 0-15, score in 16-31 (signed), depth in 32-39, bound in 40-41
+ * and the age of the search that stored it in 42-47. A bound is never zero, so an empty slot
+ * never passes for a hit.
+ */
+public final class TranspositionTable implements AutoCloseable {
+
+    public static final int EXACT = 1;
+    // The score is at least this much (the search failed high)
+    public static final int LOWER = 2;
+    // The score is at most this much (the search failed low)
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    private static final int AGE_MASK = 0x3F;
+
+    private final Arena arena;
+    private final MemorySegment table;
+    private final long buckets;
+    private int age;
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        this.buckets = (long) megabytes * 1024 * 1024 / BUCKET_BYTES;
+        this.arena = Arena.ofShared();
+        this.table = arena.allocate(buckets * BUCKET_BYTES, BUCKET_BYTES);
+    }
+
+    public long getSizeBytes() {
+        return table.byteSize();
+    }
+
+    // Called once per search so entries from earlier searches are replaced first
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public void clear() {
+        table.fill((byte) 0);
+        age = 0;
+    }
+
+    // Returns the stored data for this key, or 0 when the position is not in the table
+    public long probe(long key) {
+        long bucket = bucketOffset(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            long offset = bucket + (long) i * ENTRY_BYTES;
+            long data = table.get(ValueLayout.JAVA_LONG, offset + 8);
+            if ((table.get(ValueLayout.JAVA_LONG, offset) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = bucketOffset(key);
+        long replace = bucket;
+        int worst = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            long offset = bucket + (long) i * ENTRY_BYTES;
+            long data = table.get(ValueLayout.JAVA_LONG, offset + 8);
+            if ((table.get(ValueLayout.JAVA_LONG, offset) ^ data) == key || data == 0) {
+                // Keep the old best move if this search did not find one
+                if (move == Move.NONE && data != 0) {
+                    move = move(data);
+                }
+                replace = offset;
+                break;
+            }
+            // Shallow entries from old searches are the cheapest to lose
+            int value = depth(data) - 8 * ((age - age(data)) & AGE_MASK);
+            if (value < worst) {
+                worst = value;
+                replace = offset;
+            }
+        }
+        long data = (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40) | ((long) age << 42);
+        table.set(ValueLayout.JAVA_LONG, replace, key ^ data);
+        table.set(ValueLayout.JAVA_LONG, replace + 8, data);
+    }
+
+    // Roughly how full the table is in permille, sampled from the first thousand buckets
+    public int hashfull() {
+        long sample = Math.min(1000, buckets);
+        int used = 0;
+        for (long b = 0; b < sample; b++) {
+            for (int i = 0; i < BUCKET_ENTRIES; i++) {
+                long data = table.get(ValueLayout.JAVA_LONG, b * BUCKET_BYTES + (long) i * ENTRY_BYTES + 8);
+                if (data != 0 && age(data) == age) {
+                    used++;
+                }
+            }
+        }
+        return (int) (used * 1000 / (sample * BUCKET_ENTRIES));
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long bucketOffset(long key) {
+        return Math.unsignedMultiplyHigh(key, buckets) * BUCKET_BYTES;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> 42) & AGE_MASK);
+    }
+}
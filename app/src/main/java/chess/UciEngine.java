@@ -0,0 +1,334 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Universal Chess Interface, so GUIs and match runners can drive the engine. Commands are read on
+ * the caller's thread while a search runs on its own, which is how "stop" and "ponderhit" are answered
+ * at once; "bestmove" is printed from the search thread when it finishes.
+ */
+public final class UciEngine {
+
+    // Kept back from the clock for the time it takes the move to reach the GUI
+    private static final long MOVE_OVERHEAD_MILLIS = 30;
+    // How many more moves the remaining time is spread over when the GUI does not say
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final Board board = new Board();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("uci-timer").factory());
+
+    private int hashMegabytes = 64;
+    private int threads = 1;
+    // Built on the first "go" and again after the options that size them change
+    private TranspositionTable table;
+    private ParallelSearch search;
+
+    private Thread searchThread;
+    private ScheduledFuture<?> stopTimer;
+    // While set the finished search keeps its best move back: "go infinite" and "go ponder" may only
+    // answer after "stop" or "ponderhit"
+    private boolean holdBestMove;
+    // The thinking time of a ponder search, started by "ponderhit"; 0 when it has no time limit
+    private long ponderTimeMillis;
+    private final Object lock = new Object();
+
+    public UciEngine(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        this.out = out;
+        board.resetBoard();
+    }
+
+    // Reads commands until "quit" or the end of the input
+    public void run() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line.trim())) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stopSearch();
+            timer.shutdownNow();
+            closeSearch();
+        }
+    }
+
+    // Handles one command; false once the engine should quit
+    boolean execute(String command) {
+        String[] tokens = command.split("\\s+");
+        try {
+            return execute(tokens);
+        } catch (NumberFormatException e) {
+            out.println("info string Invalid number in " + command);
+            return true;
+        }
+    }
+
+    private boolean execute(String[] tokens) {
+        switch (tokens[0]) {
+            case "uci" -> {
+                out.println("id name ChessConsole");
+                out.println("id author ChessConsole contributors");
+                out.println("option name Hash type spin default 64 min 1 max 65536");
+                out.println("option name Threads type spin default 1 min 1 max 256");
+                out.println("option name Ponder type check default false");
+                out.println("uciok");
+            }
+            case "isready" -> out.println("readyok");
+            case "ucinewgame" -> {
+                stopSearch();
+                if (table != null) {
+                    table.clear();
+                }
+            }
+            case "setoption" -> setOption(tokens);
+            case "position" -> {
+                stopSearch();
+                setPosition(tokens);
+            }
+            case "go" -> {
+                stopSearch();
+                go(tokens);
+            }
+            case "stop" -> stopSearch();
+            case "ponderhit" -> ponderHit();
+            case "quit" -> {
+                return false;
+            }
+            case "" -> {
+            }
+            default -> out.println("info string Unknown command " + tokens[0]);
+        }
+        return true;
+    }
+
+    private void setOption(String[] tokens) {
+        String name = null;
+        String value = null;
+        for (int i = 1; i + 1 < tokens.length; i++) {
+            if (tokens[i].equals("name")) {
+                name = tokens[i + 1];
+            } else if (tokens[i].equals("value")) {
+                value = tokens[i + 1];
+            }
+        }
+        if (name == null || value == null) {
+            return;
+        }
+        stopSearch();
+        if (name.equalsIgnoreCase("Hash")) {
+            hashMegabytes = Math.max(1, Integer.parseInt(value));
+            closeSearch();
+        } else if (name.equalsIgnoreCase("Threads")) {
+            threads = Math.max(1, Integer.parseInt(value));
+            closeSearch();
+        }
+    }
+
+    // position [startpos | fen <fen>] [moves <move>...]
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                fen.append(fen.length() > 0 ? " " : "").append(tokens[i]);
+            }
+            try {
+                board.loadFen(fen);
+            } catch (IllegalArgumentException e) {
+                out.println("info string " + e.getMessage());
+                board.resetBoard();
+                return;
+            }
+        } else {
+            board.resetBoard();
+            i++;
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = MoveParser.parse(board, tokens[i], moves);
+                if (move == Move.NONE) {
+                    out.println("info string Illegal move " + tokens[i]);
+                    return;
+                }
+                board.playMove(move);
+            }
+        }
+    }
+
+    private void go(String[] tokens) {
+        int depth = 0;
+        long nodes = 0;
+        long moveTime = 0;
+        long time = 0;
+        long increment = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        boolean white = board.isWhiteToMove();
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "depth" -> depth = (int) number(tokens, ++i);
+                case "nodes" -> nodes = number(tokens, ++i);
+                case "movetime" -> moveTime = number(tokens, ++i);
+                case "wtime", "btime" -> {
+                    long value = number(tokens, i + 1);
+                    if (tokens[i++].charAt(0) == (white ? 'w' : 'b')) {
+                        time = value;
+                    }
+                }
+                case "winc", "binc" -> {
+                    long value = number(tokens, i + 1);
+                    if (tokens[i++].charAt(0) == (white ? 'w' : 'b')) {
+                        increment = value;
+                    }
+                }
+                case "movestogo" -> movesToGo = (int) number(tokens, ++i);
+                case "infinite" -> infinite = true;
+                case "ponder" -> ponder = true;
+                default -> {
+                }
+            }
+        }
+
+        long thinkingTime = moveTime > 0 ? moveTime : allocateTime(time, increment, movesToGo);
+        SearchLimits limits = new SearchLimits(depth, nodes, infinite || ponder ? 0 : thinkingTime);
+        synchronized (lock) {
+            holdBestMove = infinite || ponder;
+            ponderTimeMillis = ponder && !infinite ? thinkingTime : 0;
+        }
+        if (search == null) {
+            table = new TranspositionTable(hashMegabytes);
+            search = new ParallelSearch(board, table, threads);
+        }
+        ParallelSearch running = search;
+        searchThread = Thread.ofPlatform().name("uci-search").start(() -> {
+            SearchResult result = running.search(limits);
+            synchronized (lock) {
+                while (holdBestMove) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            report(result);
+        });
+    }
+
+    private static long number(String[] tokens, int index) {
+        return index < tokens.length ? Long.parseLong(tokens[index]) : 0;
+    }
+
+    // A share of the remaining clock plus most of the increment, never more than is left
+    static long allocateTime(long time, long increment, int movesToGo) {
+        if (time <= 0) {
+            return 0;
+        }
+        long share = time / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+        return Math.max(1, Math.min(share, time - MOVE_OVERHEAD_MILLIS));
+    }
+
+    // The opponent played the expected move: the ponder search goes on as a normal one on our own clock
+    private void ponderHit() {
+        long thinkingTime;
+        synchronized (lock) {
+            holdBestMove = false;
+            thinkingTime = ponderTimeMillis;
+            lock.notifyAll();
+        }
+        if (thinkingTime > 0 && search != null) {
+            ParallelSearch running = search;
+            stopTimer = timer.schedule(running::stop, thinkingTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void report(SearchResult result) {
+        StringBuilder info = new StringBuilder("info depth ").append(result.getDepth()).append(" score ");
+        if (result.isMate()) {
+            int score = result.getScore();
+            info.append("mate ").append(score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2);
+        } else {
+            info.append("cp ").append(result.getScore());
+        }
+        info.append(" nodes ").append(result.getNodes())
+                .append(" nps ").append(result.getNodesPerSecond())
+                .append(" time ").append(result.getElapsedNanos() / 1_000_000);
+        int[] pv = result.getPrincipalVariation();
+        if (pv.length > 0) {
+            info.append(" pv");
+            for (int move : pv) {
+                info.append(' ').append(Move.toString(move));
+            }
+        }
+        StringBuilder bestMove = new StringBuilder("bestmove ");
+        int move = result.getBestMove();
+        if (move == Move.NONE) {
+            // GUIs take "0000" as an illegal move, so it is only sent when there is no legal one
+            int[] legal = new int[MoveGenerator.MAX_MOVES];
+            move = MoveGenerator.generateLegal(board, legal) > 0 ? legal[0] : Move.NONE;
+        }
+        bestMove.append(move == Move.NONE ? "0000" : Move.toString(move));
+        if (pv.length > 1 && pv[0] == move) {
+            bestMove.append(" ponder ").append(Move.toString(pv[1]));
+        }
+        synchronized (out) {
+            out.println(info);
+            out.println(bestMove);
+            out.flush();
+        }
+    }
+
+    // Stops the running search, if any, and waits for it to print its best move
+    private void stopSearch() {
+        if (searchThread == null) {
+            return;
+        }
+        if (stopTimer != null) {
+            stopTimer.cancel(false);
+            stopTimer = null;
+        }
+        synchronized (lock) {
+            holdBestMove = false;
+            lock.notifyAll();
+        }
+        try {
+            // Repeated, since a stop that arrives before the search has started would be cleared by it
+            while (searchThread.isAlive()) {
+                search.stop();
+                searchThread.join(5);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private void closeSearch() {
+        if (search != null) {
+            search.close();
+            table.close();
+            search = null;
+            table = null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package chess;
+
+public final class Zobrist {
+
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILES = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    private static long seed = 0x5EEDC0DECAFEF00DL;
+
+    static {
+        // Keys come from a fixed SplitMix64 sequence so they stay stable and can be stored in files
+        for (long[] piece : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                piece[square] = nextRandom();
+            }
+        }
+        // Having no castling rights contributes nothing to the key
+        for (int rights = 1; rights < 16; rights++) {
+            CASTLING[rights] = nextRandom();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILES[file] = nextRandom();
+        }
+        BLACK_TO_MOVE = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    private static long nextRandom() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECES[piece][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT_FILES[Bitboards.file(square)];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttackMapTest {
+
+    @Test void mapsMatchARecomputationThroughRandomGames() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        RandomGames.play(Board.START_FEN, 19, 100, 120, board -> {
+            // Every pseudo-legal move, so the maps are also checked with the king left in check
+            int count = MoveGenerator.generate(board, board.isWhiteToMove(), moves);
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i]);
+                assertMapsCurrent(board);
+                board.unmakeMove();
+                assertMapsCurrent(board);
+            }
+            assertMapsCurrent(board.copy());
+        });
+    }
+
+    @Test void castlingAndCheckFollowMovesOfOtherPieces() {
+        Board board = Board.fromFen("4kr2/8/8/8/8/8/8/4K2R b K - 0 1");
+        int castle = Bitboards.square(0, 6);
+
+        assertFalse(Bitboards.isSet(board.getPiece(0, 4).getPossibleTargets(board, true, true), castle));
+
+        // Once the rook leaves the f-file nothing guards f1 any more
+        board.playMove(Move.of(Bitboards.square(7, 5), Bitboards.square(7, 0), Move.QUIET));
+        assertTrue(Bitboards.isSet(board.getPiece(0, 4).getPossibleTargets(board, true, true), castle));
+        assertFalse(board.getPiece(0, 4).isCheck(board));
+
+        board.playMove(Move.of(Bitboards.square(0, 7), Bitboards.square(1, 7), Move.QUIET));
+        board.playMove(Move.of(Bitboards.square(7, 0), Bitboards.square(0, 0), Move.QUIET));
+        assertTrue(board.getPiece(0, 4).isCheck(board));
+        assertTrue(board.isInCheck(true));
+    }
+
+    private static void assertMapsCurrent(Board board) {
+        for (int side = 0; side < 2; side++) {
+            boolean isWhite = side == 0;
+            long expected = 0L;
+            long occupied = board.getOccupied();
+            for (long own = board.getOccupancy(isWhite); own != 0; own &= own - 1) {
+                int square = Long.numberOfTrailingZeros(own);
+                expected |= switch (PieceTypes.VALUES[board.pieceAt(square) % 6]) {
+                    case PAWN -> Attacks.pawn(square, isWhite);
+                    case KNIGHT -> Attacks.knight(square);
+                    case BISHOP -> Attacks.bishop(square, occupied);
+                    case ROOK -> Attacks.rook(square, occupied);
+                    case QUEEN -> Attacks.queen(square, occupied);
+                    default -> Attacks.king(square);
+                };
+            }
+            assertEquals(expected, board.getAttacks(isWhite), board.toFen());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package chess;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchReplayTest {
+
+    @Test void gamePerLineInputIsCheckedAndReported() throws IOException {
+        String games = """
+                f2f3 e7e5 g2g4 d8h4
+                1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1/2-1/2
+
+                e2e4 e7e5 e1e3
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 0-1
+                a2a4 b7b5 a4b5 a7a6 b5a6 c8b7 a6b7 b8c6 b7a8q
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BatchReplay replay = new BatchReplay(new PrintStream(out, true, StandardCharsets.UTF_8));
+        replay.replay(new ByteArrayInputStream(games.getBytes(StandardCharsets.US_ASCII)));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals("1 0-1 checkmate, 4 plies", lines[0]);
+        assertEquals("2 1/2-1/2, 6 plies", lines[1]);
+        assertEquals("3 illegal move e1e3 at ply 3", lines[2]);
+        assertEquals("4 1-0 checkmate (recorded 0-1), 7 plies", lines[3]);
+        assertEquals("5 *, 9 plies", lines[4]);
+        assertEquals(5, replay.getGames());
+        assertEquals(1, replay.getIllegalGames());
+        assertEquals(4 + 6 + 2 + 7 + 9, replay.getPlies());
+    }
+
+    @Test void pgnInputReportsDrawReasons() throws IOException {
+        String pgn = """
+                [Event "Stalemate"]
+                [FEN "7k/8/6Q1/8/8/8/8/K7 w - - 0 1"]
+
+                1. Qf7 1/2-1/2
+
+                [Event "Lone knight"]
+                [FEN "7k/8/8/8/8/6n1/8/K6R b - - 0 1"]
+
+                1... Nxh1 2. Kb2 *
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BatchReplay replay = new BatchReplay(new PrintStream(out, true, StandardCharsets.UTF_8));
+        replay.replay(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.US_ASCII)));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals("1 1/2-1/2 stalemate, 1 plies", lines[0]);
+        assertEquals("2 1/2-1/2 insufficient material, 2 plies", lines[1]);
+        assertEquals(2, replay.getGames());
+    }
+
+    @Test void aBrokenFenTagOnlyCostsItsOwnGame() throws IOException {
+        String pgn = """
+                [Event "Fine"]
+
+                1. e4 e5 *
+
+                [Event "Broken"]
+                [FEN "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"]
+
+                1. e4 e5 *
+
+                [Event "Fine again"]
+
+                1. d4 d5 2. c4 *
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BatchReplay replay = new BatchReplay(new PrintStream(out, true, StandardCharsets.UTF_8));
+        replay.replay(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.US_ASCII)));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals("1 *, 2 plies", lines[0]);
+        assertEquals("2 invalid FEN rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", lines[1]);
+        assertEquals("3 *, 3 plies", lines[2]);
+        assertEquals(1, replay.getIllegalGames());
+        assertEquals(5, replay.getPlies());
+    }
+}
@@ -0,0 +1,57 @@
+package chess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardRendererTest {
+
+    @Test void frameShowsEveryRankWithWhiteAtTheBottom() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BoardRenderer(out).render(Board.fromFen("4k3/8/8/8/8/8/4P3/4K2R w K - 0 1"));
+
+        String n = System.lineSeparator();
+        String empty = "|    |    |    |    |    |    |    |    |" + n;
+        String expected = n
+                + "|    |    |    |    | BK |    |    |    |" + n
+                + empty + empty + empty + empty + empty
+                + "|    |    |    |    | WP |    |    |    |" + n
+                + "|    |    |    |    | WK |    |    | WR |" + n;
+        assertEquals(expected, out.toString());
+    }
+
+    @Test void eachFrameIsOneWriteAndFramesReuseTheBuffer() {
+        int[] writes = new int[1];
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        OutputStream counting = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new AssertionError("single byte write");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writes[0]++;
+                frames.write(b, off, len);
+            }
+        };
+        BoardRenderer renderer = new BoardRenderer(counting);
+        Board board = Board.fromFen(Board.START_FEN);
+        renderer.render(board);
+        board.playMove(Move.of(Bitboards.square(1, 4), Bitboards.square(3, 4), Move.DOUBLE_PAWN_PUSH));
+        renderer.render(board);
+
+        assertEquals(2, writes[0]);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        new BoardRenderer(second).render(board);
+        assertTrue(frames.toString().endsWith(second.toString()));
+    }
+
+    @Test void headlessRendererDrawsNothing() {
+        BoardRenderer renderer = BoardRenderer.headless();
+        assertTrue(renderer.isHeadless());
+        renderer.render(Board.fromFen(Board.START_FEN));
+    }
+}
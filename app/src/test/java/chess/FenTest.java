@@ -0,0 +1,77 @@
+package chess;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FenTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test void startPositionMatchesResetBoard() {
+        Board board = new Board();
+        board.resetBoard();
+
+        assertEquals(Board.START_FEN, board.toFen());
+        assertEquals(board.getKey(), Board.fromFen(Board.START_FEN).getKey());
+    }
+
+    @Test void fenRoundTripsWithEnPassantAndCounters() {
+        String fen = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+        Board board = Board.fromFen(fen);
+
+        assertEquals(fen, board.toFen());
+        assertEquals(Bitboards.square(5, 5), board.getEnPassantSquare());
+        assertEquals(3, board.getFullMoveNumber());
+        assertEquals(board.computeKey(), board.getKey());
+    }
+
+    @Test void malformedFenIsRejected() {
+        Board board = new Board();
+
+        assertThrows(IllegalArgumentException.class, () -> board.loadFen("8/8/8/8/8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> board.loadFen("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w"));
+        assertThrows(IllegalArgumentException.class, () -> board.loadFen(KIWIPETE.replace(" w ", " x ")));
+    }
+
+    @Test void castlingRightsWithoutKingAndRookAtHomeAreDropped() {
+        // No rook on h1 and no rook on a8, so K and q mean nothing
+        Board board = Board.fromFen("4k2r/8/8/8/8/8/8/R3K3 w KQkq - 0 1");
+        assertEquals(Board.WHITE_QUEENSIDE | Board.BLACK_KINGSIDE, board.getCastlingRights());
+        assertEquals("4k2r/8/8/8/8/8/8/R3K3 w Qk - 0 1", board.toFen());
+        assertEquals(board.computeKey(), board.getKey());
+
+        board = Board.fromFen("4k3/8/8/8/8/8/8/4K2N w K - 0 1");
+        assertEquals(0, board.getCastlingRights());
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves);
+        for (int i = 0; i < count; i++) {
+            assertFalse(Move.isCastle(moves[i]), Move.toString(moves[i]));
+        }
+        assertTrue(new Perft(board).count(3) > 0);
+    }
+
+    @Test void loadingAPositionAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Board board = new Board();
+        long checksum = 0;
+        for (int i = 0; i < 20_000; i++) {
+            board.loadFen(KIWIPETE);
+            checksum += board.getKey();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            board.loadFen(KIWIPETE);
+            checksum += board.getKey();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertNotEquals(0, checksum);
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+}
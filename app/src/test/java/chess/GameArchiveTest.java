@@ -0,0 +1,143 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    @Test void gamesAndPliesAreReadBackByNumber() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        int[][] games = {playOpening("e4", "e5", "Nf3", "Nc6", "Bb5"), playOpening("d4", "d5"), new int[0]};
+        try (GameArchive archive = new GameArchive(dir, "test")) {
+            for (int i = 0; i < games.length; i++) {
+                assertEquals(i, archive.append(100 + i, 1_700_000_000_000L + i, GameArchive.DRAW, games[i], games[i].length));
+            }
+        }
+
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(3, reader.getGameCount());
+            for (int i = 0; i < games.length; i++) {
+                assertEquals(games[i].length, reader.getPlyCount(i));
+                assertEquals(100 + i, reader.getSessionId(i));
+                assertEquals(GameArchive.DRAW, reader.getResult(i));
+                for (int ply = 0; ply < games[i].length; ply++) {
+                    assertEquals(games[i][ply], reader.getMove(i, ply));
+                }
+            }
+            Board board = new Board();
+            reader.replay(0, 5, board);
+            assertEquals(Board.fromFen("r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3").getKey(),
+                    board.getKey());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getMove(1, 2));
+        }
+    }
+
+    @Test void reopeningDropsATornTailAndKeepsAppending() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        int[] game = playOpening("c4", "e5", "Nc3");
+        try (GameArchive archive = new GameArchive(dir, "test")) {
+            archive.append(1, 0, GameArchive.WHITE_WINS, game, game.length);
+        }
+        // A record that reached the segment but not the index, as a crash between the two writes leaves it
+        try (FileChannel channel = FileChannel.open(GameArchive.gamesPath(dir, "test"), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[GameArchive.GAME_HEADER_BYTES + 3]));
+        }
+
+        try (GameArchive archive = new GameArchive(dir, "test")) {
+            assertEquals(1, archive.getGameCount());
+            assertEquals(1, archive.append(2, 0, GameArchive.BLACK_WINS, game, 2));
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(2, reader.getGameCount());
+            assertEquals(GameArchive.BLACK_WINS, reader.getResult(1));
+            assertEquals(game[1], reader.getMove(1, 1));
+        }
+    }
+
+    @Test void gamesLeftOpenInTheMoveLogAreAppendedOnReopen() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        int[] game = playOpening("e4", "c5", "Nf3");
+        try (MoveJournal journal = new MoveJournal(new GameArchive(dir, "test"), 2, 1000)) {
+            for (int move : game) {
+                journal.recordMove(7, 1_700_000_000_000L, move);
+            }
+            // A second game ends; the first is still being played when the process goes away
+            journal.recordMove(8, 1_700_000_000_001L, game[0]);
+            assertEquals(0L, (long) journal.record(8, 1_700_000_000_001L, "0-1", game, 1).join());
+        }
+        // Half a frame, as a crash in the middle of a write leaves it
+        try (FileChannel channel = FileChannel.open(GameArchive.logPath(dir, "test", 0), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[GameArchive.FRAME_HEADER_BYTES - 2]));
+        }
+
+        for (int open = 0; open < 2; open++) {
+            try (GameArchive archive = new GameArchive(dir, "test")) {
+                assertEquals(2, archive.getGameCount());
+            }
+        }
+        assertEquals(0, logSegments(dir));
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(GameArchive.BLACK_WINS, reader.getResult(0));
+            assertEquals(7, reader.getSessionId(1));
+            assertEquals(GameArchive.RESULT_UNKNOWN, reader.getResult(1));
+            assertEquals(game.length, reader.getPlyCount(1));
+            for (int ply = 0; ply < game.length; ply++) {
+                assertEquals(game[ply], reader.getMove(1, ply));
+            }
+        }
+    }
+
+    @Test void logSegmentsAreDeletedOnceTheirGamesAreAppended() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        int[] game = playOpening("e4", "e5");
+        try (GameArchive archive = new GameArchive(dir, "test", 64)) {
+            // One game stays open throughout while many short ones come and go
+            archive.logMove(1, 0, game[0]);
+            archive.flush(true);
+            for (int session = 2; session < 50; session++) {
+                archive.logMove(session, 0, game[0]);
+                archive.logMove(session, 0, game[1]);
+                archive.flush(true);
+                archive.append(session, 0, GameArchive.DRAW, game, 2);
+                archive.flush(true);
+                assertTrue(logSegments(dir) <= 3, logSegments(dir) + " log segments after game " + session);
+            }
+        }
+
+        try (GameArchive archive = new GameArchive(dir, "test", 64)) {
+            assertEquals(49, archive.getGameCount());
+        }
+        assertEquals(0, logSegments(dir));
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(1, reader.getSessionId(48));
+            assertEquals(1, reader.getPlyCount(48));
+            assertEquals(GameArchive.RESULT_UNKNOWN, reader.getResult(48));
+        }
+    }
+
+    private static long logSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static int[] playOpening(String... sans) {
+        Board board = new Board();
+        board.resetBoard();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] moves = new int[sans.length];
+        for (int i = 0; i < sans.length; i++) {
+            moves[i] = San.parse(board, sans[i], buffer);
+            board.playMove(moves[i]);
+        }
+        return moves;
+    }
+}
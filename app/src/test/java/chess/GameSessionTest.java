@@ -0,0 +1,60 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSessionTest {
+
+    @Test void sideToMoveComesFromTheBoard() {
+        GameSession session = new GameSession(1, null);
+        session.start();
+        session.getBoard().loadFen("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2");
+        assertFalse(session.isWhiteToMove());
+
+        assertTrue(session.makeMove("Qh4"));
+        assertTrue(session.isWhiteToMove());
+        assertTrue(session.isOver());
+        assertEquals("0-1", session.getResult());
+    }
+
+    @Test void illegalMovesAreRejectedAndLegalOnesRecorded() throws IOException {
+        GameSession session = new GameSession(1, null);
+        session.start();
+        assertFalse(session.makeMove("e2e5"));
+        assertFalse(session.makeMove("Nf6"));
+        assertTrue(session.makeMove("e2e4"));
+        assertTrue(session.makeMove("Nf6"));
+        assertEquals(2, session.getPlayedCount());
+        assertEquals("*", session.getResult());
+
+        StringBuilder pgn = new StringBuilder();
+        session.writePgn(pgn, "White", "Black");
+        assertTrue(pgn.toString().contains("1. e4 Nf6 *"), pgn.toString());
+
+        session.start();
+        assertEquals(0, session.getPlayedCount());
+        assertTrue(session.isWhiteToMove());
+    }
+
+    @Test void endingAGameStoresItsMovesInTheArchive() throws IOException {
+        Path dir = Files.createTempDirectory("session");
+        try (MoveJournal journal = new MoveJournal(new GameArchive(dir, "test"))) {
+            GameSession session = new GameSession(5, journal);
+            session.start();
+            for (String move : new String[] {"f3", "e5", "g4", "Qh4"}) {
+                assertTrue(session.makeMove(move));
+            }
+            assertEquals(0L, (long) session.endGame().join());
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(1, reader.getGameCount());
+            assertEquals(5, reader.getSessionId(0));
+            assertEquals(4, reader.getPlyCount(0));
+            assertEquals(GameArchive.BLACK_WINS, reader.getResult(0));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaterialTest {
+
+    @Test void countsFollowMovesAndTakeBacks() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        RandomGames.play(kiwipete, 21, 100, 150, board -> {
+            int count = MoveGenerator.generateLegal(board, moves);
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i]);
+                assertCountsMatch(board);
+                board.unmakeMove();
+            }
+            assertCountsMatch(board);
+            assertCountsMatch(board.copy());
+            assertEquals(count > 0, MoveGenerator.hasLegalMove(board, moves), board.toFen());
+        });
+    }
+
+    @Test void insufficientMaterialIsRecognised() {
+        assertTrue(Board.fromFen("8/8/4k3/8/8/3K4/8/8 w - - 0 1").isInsufficientMaterial());
+        assertTrue(Board.fromFen("8/8/4k3/8/8/3K4/5N2/8 w - - 0 1").isInsufficientMaterial());
+        assertTrue(Board.fromFen("8/8/4k3/2b5/8/3K4/8/8 b - - 0 1").isInsufficientMaterial());
+        // Bishops on squares of one colour, whichever side owns them
+        assertTrue(Board.fromFen("8/8/4k3/2b5/8/3K4/8/2B5 w - - 0 1").isInsufficientMaterial());
+
+        assertFalse(Board.fromFen("8/8/4k3/2b5/8/3K4/8/3B4 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Board.fromFen("8/8/4k3/8/8/3K4/5N2/6N1 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Board.fromFen("8/8/4k3/2n5/8/3K4/8/2B5 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Board.fromFen("8/8/4k3/8/8/3K4/4P3/8 w - - 0 1").isInsufficientMaterial());
+        assertFalse(Board.fromFen(Board.START_FEN).isInsufficientMaterial());
+    }
+
+    @Test void lastCaptureLeavesADrawnGame() {
+        GameSession session = new GameSession(1, null);
+        session.getBoard().loadFen("8/8/4k3/8/8/3K4/3r4/8 w - - 0 1");
+        assertTrue(session.makeMove("d3xd2"));
+        assertTrue(session.getMoveLogger().isDraw());
+        assertEquals("insufficient material", session.getMoveLogger().getDrawReason());
+    }
+
+    private static void assertCountsMatch(Board board) {
+        for (PieceTypes type : new PieceTypes[] {PieceTypes.PAWN, PieceTypes.ROOK, PieceTypes.KNIGHT,
+                PieceTypes.BISHOP, PieceTypes.QUEEN, PieceTypes.KING}) {
+            for (boolean isWhite : new boolean[] {true, false}) {
+                assertEquals(Long.bitCount(board.getPieces(type, isWhite)), board.getPieceCount(type, isWhite),
+                        type + " " + board.toFen());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package chess;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MoveGeneratorTest {
+    @Test void startingPositionHasTwentyMoves() {
+        Board board = new Board();
+        board.resetBoard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        assertEquals(20, MoveGenerator.generate(board, true, moves));
+        assertEquals(20, MoveGenerator.generate(board, false, moves));
+    }
+
+    @Test void steadyStateGenerationAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Board board = new Board();
+        board.resetBoard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        long checksum = 0;
+        for (int i = 0; i < 20_000; i++) {
+            checksum += MoveGenerator.generate(board, (i & 1) == 0, moves);
+        }
+
+        int iterations = 100_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            checksum += MoveGenerator.generate(board, (i & 1) == 0, moves);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(checksum > 0);
+        // The JIT and class loading in a shared JVM may allocate a little on this thread; a single object
+        // per call would already be 16 bytes an iteration
+        assertTrue(allocated < iterations, allocated + " bytes allocated over " + iterations + " generations");
+    }
+
+    @Test void legalMovesAreThePseudoLegalMovesThatKeepTheKingSafe() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        RandomGames.play(Board.START_FEN, 20, 200, 150, board -> {
+            int[] expected = filterLegal(board, MoveGenerator.generate(board, board.isWhiteToMove(), moves), moves);
+            int count = MoveGenerator.generateLegal(board, legal);
+            assertArrayEquals(expected, sorted(legal, count), board.toFen());
+
+            int captures = MoveGenerator.generateCaptures(board, board.isWhiteToMove(), moves);
+            int[] expectedCaptures = filterLegal(board, captures, moves);
+            assertArrayEquals(expectedCaptures, sorted(moves, MoveGenerator.generateLegalCaptures(board, moves)),
+                    board.toFen());
+        });
+    }
+
+    @Test void pinnedPiecesAndEnPassantDiscoveriesAreExcluded() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        // The knight on d2 is pinned to the king by the rook on d8
+        Board board = Board.fromFen("3r4/8/8/8/8/8/3N4/3K3k w - - 0 1");
+        int count = MoveGenerator.generateLegal(board, moves);
+        for (int i = 0; i < count; i++) {
+            assertNotEquals(Bitboards.square(1, 3), Move.from(moves[i]), Move.toString(moves[i]));
+        }
+
+        // Taking en passant would take both pawns off the fifth rank and expose the king to the rook
+        board = Board.fromFen("8/8/8/K2pP2r/8/8/8/7k w - d6 0 1");
+        count = MoveGenerator.generateLegal(board, moves);
+        for (int i = 0; i < count; i++) {
+            assertFalse(Move.isEnPassant(moves[i]), Move.toString(moves[i]));
+        }
+    }
+
+    @Test void noLegalMovesIsMateOrStalemate() {
+        Board mate = Board.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(mate.isCheckmate());
+        assertFalse(mate.isStalemate());
+
+        Board stalemate = Board.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertTrue(stalemate.isStalemate());
+        assertFalse(stalemate.isCheckmate());
+
+        // Double check leaves only king moves
+        Board doubleCheck = Board.fromFen("4k3/8/8/8/8/3n4/R3r3/4K3 w - - 0 1");
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(doubleCheck, moves);
+        assertTrue(count > 0);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Bitboards.square(0, 4), Move.from(moves[i]));
+        }
+    }
+
+    private static int[] filterLegal(Board board, int count, int[] moves) {
+        boolean isWhite = board.isWhiteToMove();
+        int legal = 0;
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            if (!board.isInCheck(isWhite)) {
+                result[legal++] = moves[i];
+            }
+            board.unmakeMove();
+        }
+        return sorted(result, legal);
+    }
+
+    private static int[] sorted(int[] moves, int count) {
+        int[] copy = Arrays.copyOf(moves, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
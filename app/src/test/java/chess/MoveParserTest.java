@@ -0,0 +1,88 @@
+package chess;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MoveParserTest {
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Test void uciAndLongFormMovesAreRead() {
+        Board board = Board.fromFen(Board.START_FEN);
+        assertEquals(Move.of(sq("e2"), sq("e4"), Move.DOUBLE_PAWN_PUSH), MoveParser.parse(board, "e2e4", moves));
+        assertEquals(Move.of(sq("g1"), sq("f3"), Move.QUIET), MoveParser.parse(board, "g1f3", moves));
+        assertEquals(Move.NONE, MoveParser.parse(board, "e2e5", moves));
+        assertEquals(Move.NONE, MoveParser.parse(board, "e7e5", moves));
+
+        board = Board.fromFen("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2");
+        assertEquals(Move.of(sq("e4"), sq("d5"), Move.CAPTURE), MoveParser.parse(board, "e4xd5", moves));
+        assertEquals(Move.of(sq("e4"), sq("d5"), Move.CAPTURE), MoveParser.parse(board, "e4d5", moves));
+        assertEquals(Move.NONE, MoveParser.parse(board, "e4xe5", moves));
+    }
+
+    @Test void promotionsKeepTheirPiece() {
+        Board board = Board.fromFen("3r3k/4P3/8/8/8/8/8/K7 w - - 0 1");
+        assertEquals(Move.promotion(sq("e7"), sq("e8"), PieceTypes.KNIGHT, false),
+                MoveParser.parse(board, "e7e8n", moves));
+        assertEquals(Move.promotion(sq("e7"), sq("d8"), PieceTypes.ROOK, true),
+                MoveParser.parse(board, "e7xd8=R", moves));
+        assertEquals(Move.promotion(sq("e7"), sq("e8"), PieceTypes.QUEEN, false),
+                MoveParser.parse(board, "e7e8", moves));
+        assertEquals(Move.promotion(sq("e7"), sq("d8"), PieceTypes.BISHOP, true),
+                MoveParser.parse(board, "exd8=B+", moves));
+        assertEquals(Move.NONE, MoveParser.parse(board, "e7e8k", moves));
+
+        // The console notation of a promotion reads back as the same move
+        int underPromotion = Move.promotion(sq("e7"), sq("d8"), PieceTypes.KNIGHT, true);
+        assertEquals(underPromotion, MoveParser.parse(board, GameSession.toNotation(underPromotion), moves));
+    }
+
+    @Test void sanIsResolvedAgainstTheBoard() {
+        Board board = Board.fromFen("r3k2r/pp1n1ppp/8/2pPp3/8/8/PPP2PPP/R3K1NR w KQkq e6 0 1");
+        assertEquals(Move.of(sq("d5"), sq("e6"), Move.EN_PASSANT), MoveParser.parse(board, "dxe6", moves));
+        assertEquals(Move.of(sq("g1"), sq("f3"), Move.QUIET), MoveParser.parse(board, "Nf3", moves));
+        assertEquals(Move.of(sq("e1"), sq("c1"), Move.QUEEN_CASTLE), MoveParser.parse(board, "O-O-O+", moves));
+
+        board = Board.fromFen("r3k2r/p4ppp/1n6/8/8/8/PPP2PPP/R3K2R b KQkq - 0 1");
+        assertEquals(Move.of(sq("e8"), sq("g8"), Move.KING_CASTLE), MoveParser.parse(board, "O-O", moves));
+
+        // Two knights can reach d7, so the file or rank has to be given
+        board = Board.fromFen("4k3/8/1n3n2/8/8/8/8/4K3 b - - 0 1");
+        assertEquals(Move.NONE, MoveParser.parse(board, "Nd7", moves));
+        assertEquals(Move.of(sq("b6"), sq("d7"), Move.QUIET), MoveParser.parse(board, "Nbd7", moves));
+        assertEquals(Move.of(sq("f6"), sq("d7"), Move.QUIET), MoveParser.parse(board, "Nfd7", moves));
+    }
+
+    @Test void parsingAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Board board = Board.fromFen("r3k2r/pp1n1ppp/8/2pPp3/8/8/PPP2PPP/R3K1NR w KQkq e6 0 1");
+        StringBuilder[] inputs = {new StringBuilder("e1g1"), new StringBuilder("d5xe6"),
+                new StringBuilder("Nf3"), new StringBuilder("O-O-O+"), new StringBuilder("a2a4")};
+        long checksum = 0;
+        for (int i = 0; i < 20_000; i++) {
+            checksum += MoveParser.parse(board, inputs[i % inputs.length], moves);
+        }
+
+        int iterations = 100_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            checksum += MoveParser.parse(board, inputs[i % inputs.length], moves);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(checksum != 0);
+        // Less than a byte a parse: background JIT work may show up, an object per call could not hide
+        assertTrue(allocated < iterations, allocated + " bytes allocated over " + iterations + " parses");
+    }
+
+    private static int sq(String name) {
+        return Bitboards.square(name.charAt(1) - '1', name.charAt(0) - 'a');
+    }
+}
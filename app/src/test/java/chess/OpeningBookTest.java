@@ -0,0 +1,66 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+    private static final String GAMES = """
+            [Result "1-0"]
+            1. e4 e5 2. Nf3 Nc6 1-0
+
+            [Result "1-0"]
+            1. e4 c5 2. Nf3 1-0
+
+            [Result "0-1"]
+            1. d4 d5 0-1
+
+            [Result "1/2-1/2"]
+            1. e4 e5 2. Bc4 1/2-1/2
+            """;
+
+    @Test void heaviestMoveIsPlayedAndWeightsFollowResults() throws IOException {
+        try (OpeningBook book = build(20)) {
+            Board board = new Board();
+            board.resetBoard();
+            int[] buffer = new int[MoveGenerator.MAX_MOVES];
+            int[] moves = new int[8];
+            int[] weights = new int[8];
+
+            // e4 scored 2 + 2 + 1, d4 lost its only game and is left out
+            assertEquals(1, book.getMoves(board.getKey(), moves, weights));
+            assertEquals(San.parse(board, "e4", buffer), moves[0]);
+            assertEquals(5, weights[0]);
+            assertEquals(moves[0], book.bestMove(board));
+
+            // Black's e5 drew once, c5 only lost
+            board.playMove(moves[0]);
+            assertEquals(1, book.getMoves(board.getKey(), moves, weights));
+            assertEquals(1, weights[0]);
+            assertEquals(San.parse(board, "e5", buffer), book.pickMove(board, new Random(1)));
+        }
+    }
+
+    @Test void positionsPastThePlyLimitAreNotInTheBook() throws IOException {
+        try (OpeningBook book = build(1)) {
+            Board board = Board.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+            assertEquals(Move.NONE, book.bestMove(board));
+            assertEquals(1, book.getEntryCount());
+        }
+    }
+
+    private static OpeningBook build(int plies) throws IOException {
+        Path pgn = Files.createTempFile("book", ".pgn");
+        Path file = Files.createTempFile("book", ".bin");
+        Files.writeString(pgn, GAMES);
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, 1);
+        builder.addPgn(pgn);
+        builder.write(file);
+        Files.delete(pgn);
+        return new OpeningBook(file);
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTest {
+
+    private static final String MIDDLEGAME = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    @Test void helpersLeaveTheCallersBoardAlone() {
+        for (int threads : new int[] {1, 2, 4}) {
+            Board board = Board.fromFen(MIDDLEGAME);
+            long key = board.getKey();
+            try (TranspositionTable table = new TranspositionTable(4);
+                    ParallelSearch search = new ParallelSearch(board, table, threads)) {
+                assertEquals(threads, search.getThreads());
+                // Twice, so the helpers also start from a board they searched before
+                for (int run = 0; run < 2; run++) {
+                    SearchResult result = search.search(SearchLimits.depth(5));
+                    assertEquals(5, result.getDepth(), threads + " threads");
+                    SearchTest.assertLegal(board, result.getBestMove());
+                    assertEquals(MIDDLEGAME, board.toFen(), threads + " threads");
+                    assertEquals(key, board.getKey());
+                }
+            }
+        }
+    }
+
+    @Test void allThreadsAgreeOnAForcedMate() {
+        Board board = Board.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        try (TranspositionTable table = new TranspositionTable(4);
+                ParallelSearch search = new ParallelSearch(board, table, 4)) {
+            SearchResult result = search.search(SearchLimits.depth(6));
+            assertEquals("a1a8", Move.toString(result.getBestMove()));
+            assertEquals(Search.MATE - 1, result.getScore());
+        }
+    }
+
+    @Test void stopEndsEveryThread() throws Exception {
+        Board board = Board.fromFen(MIDDLEGAME);
+        try (TranspositionTable table = new TranspositionTable(4);
+                ParallelSearch search = new ParallelSearch(board, table, 3)) {
+            SearchResult[] result = new SearchResult[1];
+            Thread searching = Thread.ofPlatform().start(() -> result[0] = search.search(new SearchLimits(0, 0, 0)));
+            Thread.sleep(100);
+            search.stop();
+            searching.join(2000);
+            assertFalse(searching.isAlive(), "the search did not stop");
+            SearchTest.assertLegal(board, result[0].getBestMove());
+            assertEquals(MIDDLEGAME, board.toFen());
+        }
+    }
+
+    @Test void atLeastOneThreadIsNeeded() {
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            assertThrows(IllegalArgumentException.class, () -> new ParallelSearch(new Board(), table, 0));
+        }
+    }
+}
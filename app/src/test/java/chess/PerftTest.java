@@ -0,0 +1,61 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+    // Published node counts for the starting position
+    private static final long[] START_POSITION = {1, 20, 400, 8902, 197281, 4865609};
+
+    @Test void startingPositionMatchesPublishedCounts() {
+        Board board = new Board();
+        board.resetBoard();
+        Perft perft = new Perft(board);
+
+        for (int depth = 1; depth < START_POSITION.length; depth++) {
+            assertEquals(START_POSITION[depth], perft.count(depth), "perft(" + depth + ")");
+        }
+    }
+
+    // Positions from the Chess Programming Wiki that exercise castling, en passant, promotions and pins
+    @Test void kiwipeteMatchesPublishedCounts() {
+        assertCounts("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                48, 2039, 97862);
+    }
+
+    @Test void endgamePositionMatchesPublishedCounts() {
+        assertCounts("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238, 674624);
+    }
+
+    @Test void promotionPositionMatchesPublishedCounts() {
+        assertCounts("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467, 422333);
+    }
+
+    @Test void position5MatchesPublishedCounts() {
+        assertCounts("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379);
+    }
+
+    @Test void position6MatchesPublishedCounts() {
+        assertCounts("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890);
+    }
+
+    private static void assertCounts(String fen, long... counts) {
+        Board board = Board.fromFen(fen);
+        Perft perft = new Perft(board);
+        for (int depth = 1; depth <= counts.length; depth++) {
+            assertEquals(counts[depth - 1], perft.count(depth), fen + " perft(" + depth + ")");
+        }
+        assertEquals(board.computeKey(), board.getKey());
+    }
+
+    @Test void perftLeavesTheBoardUnchanged() {
+        Board board = new Board();
+        board.resetBoard();
+        long key = board.getKey();
+
+        new Perft(board).count(3);
+
+        assertEquals(key, board.getKey());
+        assertEquals(key, board.computeKey());
+    }
+}
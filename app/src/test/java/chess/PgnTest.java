@@ -0,0 +1,213 @@
+package chess;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnTest {
+
+    // What the reader reported for one game; the visitor only gets views, so everything is copied
+    private static final class Game {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final List<Integer> moves = new ArrayList<>();
+        final List<String> fensBefore = new ArrayList<>();
+        String illegal;
+        String result;
+        String finalFen;
+    }
+
+    private static List<Game> read(String pgn) {
+        List<Game> games = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(MemorySegment.ofArray(pgn.getBytes(StandardCharsets.US_ASCII)))) {
+            Game[] game = {new Game()};
+            PgnReader.Visitor visitor = new PgnReader.Visitor() {
+                @Override
+                public void tag(CharSequence name, CharSequence value) {
+                    game[0].tags.put(name.toString(), value.toString());
+                }
+
+                @Override
+                public void move(Board board, int move) {
+                    game[0].moves.add(move);
+                    game[0].fensBefore.add(board.toFen());
+                }
+
+                @Override
+                public void illegalMove(Board board, CharSequence san) {
+                    game[0].illegal = san.toString();
+                }
+
+                @Override
+                public void end(Board board, CharSequence result) {
+                    game[0].result = result.toString();
+                    game[0].finalFen = board.toFen();
+                }
+            };
+            while (reader.readGame(visitor)) {
+                games.add(game[0]);
+                game[0] = new Game();
+            }
+            assertEquals(games.size(), reader.getGamesRead());
+        }
+        return games;
+    }
+
+    private static List<String> uci(Game game) {
+        List<String> moves = new ArrayList<>();
+        for (int move : game.moves) {
+            moves.add(Move.toString(move));
+        }
+        return moves;
+    }
+
+    private static int[] parse(Board board, String... sans) {
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] moves = new int[sans.length];
+        for (int i = 0; i < sans.length; i++) {
+            moves[i] = San.parse(board, sans[i], buffer);
+            assertNotEquals(Move.NONE, moves[i], sans[i]);
+            board.playMove(moves[i]);
+        }
+        return moves;
+    }
+
+    @Test void writtenGamesAreReadBack() throws IOException {
+        // En passant, promotion and castling on both wings, long enough to wrap the movetext
+        String[] sans = {"e4", "d5", "e5", "f5", "exf6", "Qd6", "fxg7", "Nc6", "gxh8=Q", "Bd7", "Nf3", "O-O-O",
+                "Bc4", "e5", "O-O", "Qf6", "d3", "Nge7", "Nc3", "Ng6", "Qxf8", "Rxf8", "Bg5", "Qxf3", "gxf3", "Rxf3"};
+        Board board = new Board();
+        board.resetBoard();
+        int[] moves = parse(board, sans);
+        String endFen = board.toFen();
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Round trip");
+        tags.put("White", "A");
+        tags.put("Black", "B");
+        StringBuilder pgn = new StringBuilder();
+        PgnWriter writer = new PgnWriter(pgn);
+        writer.writeGame(tags, moves, moves.length, "1-0");
+
+        // A set-up position with black to move is written from "1..." on
+        Map<String, String> setUp = new LinkedHashMap<>();
+        setUp.put("Event", "Set up");
+        setUp.put("FEN", "7k/8/6K1/8/8/8/8/R7 b - - 0 1");
+        int[] mate = parse(Board.fromFen(setUp.get("FEN")), "Kg8", "Ra8#");
+        writer.writeGame(setUp, mate, mate.length, "1-0");
+        assertTrue(pgn.toString().contains("1... Kg8 2. Ra8# 1-0"), pgn.toString());
+        assertTrue(pgn.toString().lines().allMatch(line -> line.length() <= 80), pgn.toString());
+
+        List<Game> games = read(pgn.toString());
+        assertEquals(2, games.size());
+        assertEquals(tags, games.get(0).tags);
+        assertArrayEquals(moves, games.get(0).moves.stream().mapToInt(Integer::intValue).toArray());
+        assertNull(games.get(0).illegal);
+        assertEquals("1-0", games.get(0).result);
+        assertEquals(endFen, games.get(0).finalFen);
+
+        assertEquals(setUp, games.get(1).tags);
+        assertArrayEquals(mate, games.get(1).moves.stream().mapToInt(Integer::intValue).toArray());
+        assertEquals(setUp.get("FEN"), games.get(1).fensBefore.get(0));
+        assertTrue(Board.fromFen(games.get(1).finalFen).isCheckmate());
+    }
+
+    @Test void escapedQuotesDoNotEndATagValue() throws IOException {
+        String pgn = """
+                [Event "The \\"Immortal\\" game"]
+                [Site "C:\\\\games\\\\"]
+                [Round "1"]
+
+                1. e4 *
+                """;
+        Game game = read(pgn).get(0);
+        // The reader hands the value over as written, escapes included
+        assertEquals("The \\\"Immortal\\\" game", game.tags.get("Event"));
+        assertEquals("C:\\\\games\\\\", game.tags.get("Site"));
+        assertEquals("1", game.tags.get("Round"));
+        assertEquals(List.of("e2e4"), uci(game));
+
+        // And the writer escapes what the reader leaves escaped
+        StringBuilder written = new StringBuilder();
+        new PgnWriter(written).writeGame(Map.of("Event", "The \"Immortal\" game"), new int[0], 0, "*");
+        assertTrue(written.toString().startsWith("[Event \"The \\\"Immortal\\\" game\"]\n"), written.toString());
+    }
+
+    @Test void commentsVariationsAndNagsAreSkipped() {
+        String pgn = """
+                [Event "Annotated"]
+
+                {Before the first move} 1. e4 $1 e5 ; a rest-of-line comment with 2. d4 in it
+                2. Nf3 {A comment with (parentheses) and ; a semicolon} Nc6!? (2... d6 3. d4 (3. Bc4 {nested} Be7) exd4)
+                3. Bb5 $14 a6?! 4. Ba4 {closing} 1/2-1/2
+                """;
+        Game game = read(pgn).get(0);
+        assertNull(game.illegal);
+        assertEquals(List.of("e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4"), uci(game));
+        assertEquals("1/2-1/2", game.result);
+    }
+
+    @Test void aMissingResultEndsTheGameAtTheNextTags() {
+        String pgn = """
+                [Event "No result"]
+
+                1. d4 d5 2. c4
+
+                [Event "Next"]
+
+                1. e4 0-1
+
+                [Event "Last"]
+
+                1. c4
+                """;
+        List<Game> games = read(pgn);
+        assertEquals(3, games.size());
+        assertEquals(List.of("d2d4", "d7d5", "c2c4"), uci(games.get(0)));
+        assertEquals("*", games.get(0).result);
+        assertEquals("Next", games.get(1).tags.get("Event"));
+        assertEquals(List.of("e2e4"), uci(games.get(1)));
+        assertEquals("0-1", games.get(1).result);
+        // The end of the file ends the last one
+        assertEquals(List.of("c2c4"), uci(games.get(2)));
+        assertEquals("*", games.get(2).result);
+    }
+
+    @Test void gamesCanStartWithBlackToMove() {
+        String pgn = """
+                [FEN "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"]
+
+                1... c5 2. Nf3 d6 *
+
+                [FEN "r3k2r/8/8/8/8/8/8/4K3 b kq - 0 30"]
+
+                30...O-O-O 31. Kf2 Rdf8+ *
+                """;
+        List<Game> games = read(pgn);
+        assertEquals(List.of("c7c5", "g1f3", "d7d6"), uci(games.get(0)));
+        assertNull(games.get(0).illegal);
+        assertEquals(List.of("e8c8", "e1f2", "d8f8"), uci(games.get(1)));
+        assertNull(games.get(1).illegal);
+        assertEquals("2k2r1r/8/8/8/8/8/5K2/8 w - - 3 32", games.get(1).finalFen);
+    }
+
+    @Test void anIllegalMoveSkipsTheRestOfItsGame() {
+        String pgn = """
+                1. e4 e5 2. Ke3 Nf6 3. d4 1-0
+
+                1. d4 *
+                """;
+        List<Game> games = read(pgn);
+        assertEquals(2, games.size());
+        assertEquals(List.of("e2e4", "e7e5"), uci(games.get(0)));
+        assertEquals("Ke3", games.get(0).illegal);
+        assertEquals("1-0", games.get(0).result);
+        assertEquals(List.of("d2d4"), uci(games.get(1)));
+    }
+}
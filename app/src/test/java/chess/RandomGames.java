@@ -0,0 +1,31 @@
+package chess;
+
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+// Plays random legal games for tests that check an invariant of the board as it changes
+final class RandomGames {
+
+    private RandomGames() {
+    }
+
+    // The invariant sees every position of every game, the last one included, and must leave the board as it found it
+    static void play(String fen, long seed, int games, int plies, Consumer<Board> invariant) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int game = 0; game < games; game++) {
+            Board board = Board.fromFen(fen);
+            for (int ply = 0; ply < plies; ply++) {
+                invariant.accept(board);
+                int count = MoveGenerator.generateLegal(board, moves);
+                if (count == 0) {
+                    break;
+                }
+                board.playMove(moves[random.nextInt(count)]);
+                if (ply == plies - 1) {
+                    invariant.accept(board);
+                }
+            }
+        }
+    }
+}
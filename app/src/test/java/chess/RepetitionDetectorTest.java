@@ -0,0 +1,76 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepetitionDetectorTest {
+
+    @Test void countsEarlierPositionsWithTheSameSideToMove() {
+        RepetitionDetector detector = new RepetitionDetector();
+        detector.reset(1);
+        detector.push(2, false);
+        detector.push(3, false);
+        // The first position again, but with the other side to move
+        detector.push(1, false);
+        assertEquals(0, detector.repetitions());
+        detector.push(3, false);
+        assertTrue(detector.isRepetition());
+        assertFalse(detector.isThreefold());
+        detector.push(1, false);
+        detector.push(3, false);
+        assertTrue(detector.isThreefold());
+    }
+
+    @Test void popAcrossAnIrreversibleMoveRestoresTheWindow() {
+        RepetitionDetector detector = new RepetitionDetector();
+        detector.reset(1);
+        detector.push(2, false);
+        detector.push(3, true);
+        detector.push(4, false);
+        // Position 1 came before the irreversible move, so it cannot repeat
+        detector.push(1, false);
+        assertEquals(0, detector.repetitions());
+
+        detector.pop();
+        detector.pop();
+        detector.pop();
+        detector.push(1, false);
+        assertEquals(1, detector.repetitions());
+    }
+
+    @Test void repetitionsAreFoundAcrossTheWraparound() {
+        RepetitionDetector detector = new RepetitionDetector();
+        detector.reset(0);
+        for (int i = 1; i <= 700; i++) {
+            detector.push(i, false);
+        }
+        detector.push(651, false);
+        assertEquals(1, detector.repetitions());
+        detector.pop();
+        // Pushed more than a ring ago, and its slot has been reused since
+        detector.push(101, false);
+        assertEquals(0, detector.repetitions());
+    }
+
+    // A long reversible game with a full search line on top that keeps coming back to the root position
+    @Test void searchLinesDeeperThanTheRingLeaveNoStaleKeys() {
+        RepetitionDetector detector = new RepetitionDetector();
+        detector.reset(0);
+        int window = 300;
+        for (int i = 1; i <= window; i++) {
+            detector.push(1000 + i, false);
+        }
+        long root = 1000 + window;
+        for (int ply = 0; ply < Board.MAX_PLY; ply++) {
+            detector.push(ply % 2 == 1 ? root : -ply, false);
+        }
+        assertTrue(detector.isRepetition());
+        for (int ply = 0; ply < Board.MAX_PLY; ply++) {
+            detector.pop();
+        }
+        assertEquals(0, detector.repetitions());
+
+        detector.push(1000 + window - 1, false);
+        assertEquals(1, detector.repetitions());
+    }
+}
@@ -0,0 +1,77 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+
+    @Test void stoppingAtOnceStillGivesALegalMove() {
+        Board board = new Board();
+        board.resetBoard();
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            Search search = new Search(board, table);
+            // The stop is already pending when the first iteration starts
+            search.stop();
+            SearchResult result = search.search(SearchLimits.depth(6), 0);
+            assertLegal(board, result.getBestMove());
+            assertEquals(0, result.getDepth(), "a partial depth 1 is not a completed iteration");
+            assertEquals(result.getBestMove(), result.getPrincipalVariation()[0]);
+        }
+    }
+
+    @Test void findsMatesAtTheDepthThatSeesThem() {
+        // Back-rank mate in one, then the two-rook ladder: mate in two
+        assertMate("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 1);
+        assertMate("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1", 3);
+    }
+
+    @Test void depthAndNodeLimitsAreRespected() {
+        Board board = new Board();
+        board.resetBoard();
+        String before = board.toFen();
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            Search search = new Search(board, table);
+            SearchResult result = search.search(SearchLimits.depth(4));
+            assertEquals(4, result.getDepth());
+            assertLegal(board, result.getBestMove());
+            assertEquals(result.getBestMove(), result.getPrincipalVariation()[0]);
+
+            table.clear();
+            result = search.search(SearchLimits.nodes(5000));
+            // The budget is looked at every 1024 nodes
+            assertTrue(result.getNodes() <= 5000 + 1024, result.getNodes() + " nodes");
+            assertTrue(result.getDepth() >= 1);
+            assertLegal(board, result.getBestMove());
+        }
+        assertEquals(before, board.toFen());
+    }
+
+    private static void assertMate(String fen, int plies) {
+        Board board = Board.fromFen(fen);
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            SearchResult result = new Search(board, table).search(SearchLimits.depth(8));
+            assertTrue(result.isMate(), fen);
+            assertEquals(Search.MATE - plies, result.getScore(), fen);
+            assertEquals(plies, result.getDepth(), fen);
+
+            int[] line = result.getPrincipalVariation();
+            assertEquals(plies, line.length, fen);
+            for (int move : line) {
+                assertLegal(board, move);
+                board.makeMove(move);
+            }
+            assertTrue(board.isCheckmate(), fen);
+        }
+    }
+
+    static void assertLegal(Board board, int move) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return;
+            }
+        }
+        fail(Move.toString(move) + " is not legal in " + board.toFen());
+    }
+}
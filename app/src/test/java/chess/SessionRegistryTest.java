@@ -0,0 +1,73 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    @Test void concurrentSessionsKeepTheirOwnBoards() {
+        String[] moves = {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5"};
+        try (SessionRegistry registry = new SessionRegistry(null)) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                ids.add(registry.create().getId());
+            }
+            assertEquals(200, registry.size());
+            // Every session gets its moves from several threads at once, one ply at a time
+            for (String move : moves) {
+                List<CompletableFuture<Boolean>> played = new ArrayList<>();
+                for (long id : ids) {
+                    played.add(registry.submitMove(id, move));
+                }
+                for (CompletableFuture<Boolean> result : played) {
+                    assertTrue(result.join(), move);
+                }
+            }
+            long expected = Board.fromFen("r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3").getKey();
+            for (long id : ids) {
+                assertEquals(expected, registry.get(id).getBoard().getKey());
+                assertEquals(moves.length, registry.get(id).getPlayedCount());
+            }
+        }
+    }
+
+    @Test void unknownSessionsFail() {
+        try (SessionRegistry registry = new SessionRegistry(null)) {
+            long id = registry.create().getId();
+            assertEquals(-1L, (long) registry.end(id).join());
+            assertEquals(0, registry.size());
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> registry.submitMove(id, "e2e4").join());
+            assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+            assertThrows(CompletionException.class, () -> registry.end(id).join());
+        }
+    }
+
+    @Test void closeEndsTheGamesStillBeingPlayed() throws IOException {
+        Path dir = Files.createTempDirectory("registry");
+        try (MoveJournal journal = new MoveJournal(new GameArchive(dir, "test"))) {
+            try (SessionRegistry registry = new SessionRegistry(journal)) {
+                long finished = registry.create().getId();
+                long playing = registry.create().getId();
+                assertTrue(registry.submitMove(finished, "d2d4").join());
+                assertTrue(registry.submitMove(playing, "c2c4").join());
+                assertTrue(registry.submitMove(playing, "e7e5").join());
+                assertEquals(0L, (long) registry.end(finished).join());
+            }
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(dir, "test")) {
+            assertEquals(2, reader.getGameCount());
+            assertEquals(1, reader.getPlyCount(0));
+            assertEquals(2, reader.getPlyCount(1));
+            assertEquals(GameArchive.RESULT_UNKNOWN, reader.getResult(1));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+    private static Path directory;
+
+    // KPK also builds the KQK, KRK, KBK and KNK tables its promotions lead to
+    private static synchronized Tablebase open() {
+        try {
+            if (directory == null) {
+                directory = Files.createTempDirectory("tablebases");
+                TablebaseGenerator generator = new TablebaseGenerator(2);
+                generator.generate("KPK");
+                for (String name : generator.getGenerated()) {
+                    TablebaseGenerator.write(directory, name, generator.generate(name));
+                }
+            }
+            return new Tablebase(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test void longestMatesMatchKnownValues() {
+        TablebaseGenerator generator = new TablebaseGenerator(2);
+        // Mate in 10 with a queen and in 16 with a rook, in plies for the side to move
+        assertEquals(19, longestWin(generator.generate("KQK")));
+        assertEquals(31, longestWin(generator.generate("KRK")));
+        assertEquals(55, longestWin(generator.generate("KPK")));
+    }
+
+    @Test void unsupportedTablesAreRejected() {
+        TablebaseGenerator generator = new TablebaseGenerator(1);
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KKQ"));
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KQRKR"));
+        // En passant is not modelled, so a pawn may only stand on one side
+        assertThrows(IllegalArgumentException.class, () -> generator.generate("KPKP"));
+        assertTrue(generator.getGenerated().isEmpty());
+    }
+
+    @Test void probesBothColoursOfATable() {
+        try (Tablebase tablebase = open()) {
+            Board white = Board.fromFen("k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+            assertEquals(Tablebase.WIN, tablebase.probeWdl(white));
+            assertEquals(1, tablebase.probeDtm(white));
+
+            Board black = Board.fromFen("K7/8/1k6/8/8/8/7q/8 b - - 0 1");
+            assertEquals(Tablebase.WIN, tablebase.probeWdl(black));
+            assertEquals(1, tablebase.probeDtm(black));
+
+            Board stalemate = Board.fromFen("k7/8/1Q6/8/8/8/8/7K b - - 0 1");
+            assertEquals(Tablebase.DRAW, tablebase.probeWdl(stalemate));
+            assertEquals(Tablebase.UNKNOWN, tablebase.probeWdl(Board.fromFen(Board.START_FEN)));
+        }
+    }
+
+    @Test void everyValueFollowsFromTheMovesOfThePosition() {
+        try (Tablebase tablebase = open()) {
+            Random random = new Random(7);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int checked = 0;
+            while (checked < 2000) {
+                Board board = randomKpk(random);
+                if (board == null) {
+                    continue;
+                }
+                boolean isWhite = board.isWhiteToMove();
+                int count = MoveGenerator.generate(board, isWhite, moves);
+                int legal = 0;
+                int fastestWin = Integer.MAX_VALUE;
+                int slowestLoss = -1;
+                boolean draw = false;
+                for (int i = 0; i < count; i++) {
+                    board.makeMove(moves[i]);
+                    if (!board.isInCheck(isWhite)) {
+                        legal++;
+                        int value = tablebase.probe(board);
+                        assertTrue(value >= 0, board.toFen());
+                        if (value == 0) {
+                            draw = true;
+                        } else if (Tablebase.isLoss(value)) {
+                            fastestWin = Math.min(fastestWin, Tablebase.plies(value) + 1);
+                        } else {
+                            slowestLoss = Math.max(slowestLoss, value + 1);
+                        }
+                    }
+                    board.unmakeMove();
+                }
+                int expected = legal == 0 ? (board.isInCheck(isWhite) ? Tablebase.LOSS_BASE : 0)
+                        : fastestWin != Integer.MAX_VALUE ? fastestWin
+                        : draw ? 0 : Tablebase.LOSS_BASE + slowestLoss;
+                assertEquals(expected, tablebase.probe(board), board.toFen());
+                checked++;
+            }
+        }
+    }
+
+    @Test void bestMovesMateInTheStoredDistance() {
+        try (Tablebase tablebase = open()) {
+            Board board = Board.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+            int plies = tablebase.probeDtm(board);
+            assertEquals(Tablebase.WIN, tablebase.probeWdl(board));
+            for (int ply = 0; ply < plies; ply++) {
+                board.playMove(tablebase.bestMove(board));
+            }
+            assertTrue(board.isInCheck(board.isWhiteToMove()));
+            assertEquals(Move.NONE, tablebase.bestMove(board));
+        }
+    }
+
+    private static int longestWin(byte[] values) {
+        int longest = 0;
+        for (byte value : values) {
+            int v = value & 0xFF;
+            if (v != Tablebase.ILLEGAL && !Tablebase.isLoss(v)) {
+                longest = Math.max(longest, v);
+            }
+        }
+        return longest;
+    }
+
+    private static Board randomKpk(Random random) {
+        int whiteKing = random.nextInt(64);
+        int blackKing = random.nextInt(64);
+        int pawn = 8 + random.nextInt(48);
+        if (whiteKing == blackKing || pawn == whiteKing || pawn == blackKing) {
+            return null;
+        }
+        char[] squares = new char[64];
+        Arrays.fill(squares, '.');
+        squares[whiteKing] = 'K';
+        squares[blackKing] = 'k';
+        squares[pawn] = random.nextBoolean() ? 'P' : 'p';
+        StringBuilder fen = new StringBuilder();
+        for (int rank = 7; rank >= 0; rank--) {
+            for (int file = 0; file < 8; file++) {
+                fen.append(squares[rank * 8 + file]);
+            }
+            fen.append(rank > 0 ? "/" : random.nextBoolean() ? " w - - 0 1" : " b - - 0 1");
+        }
+        for (int empty = 8; empty > 0; empty--) {
+            int at;
+            while ((at = fen.indexOf(".".repeat(empty))) >= 0) {
+                fen.replace(at, at + empty, Integer.toString(empty));
+            }
+        }
+        Board position = Board.fromFen(fen);
+        return position.isInCheck(!position.isWhiteToMove()) ? null : position;
+    }
+}
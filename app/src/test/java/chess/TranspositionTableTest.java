@@ -0,0 +1,90 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    // A 1 MB table has 2^14 buckets, picked by the top 14 bits of the key
+    private static long keyInBucket(long bucket, long low) {
+        return bucket << 50 | low;
+    }
+
+    @Test void storedEntriesAreProbedBack() {
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            long key = 0x1234_5678_9ABC_DEF0L;
+            int move = Move.of(12, 28, Move.DOUBLE_PAWN_PUSH);
+            table.store(key, move, -345, 9, TranspositionTable.LOWER);
+
+            long data = table.probe(key);
+            assertEquals(move, TranspositionTable.move(data));
+            assertEquals(-345, TranspositionTable.score(data));
+            assertEquals(9, TranspositionTable.depth(data));
+            assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+
+            // Storing again without a best move keeps the one already known
+            table.store(key, Move.NONE, 20, 10, TranspositionTable.UPPER);
+            data = table.probe(key);
+            assertEquals(move, TranspositionTable.move(data));
+            assertEquals(20, TranspositionTable.score(data));
+            assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(data));
+        }
+    }
+
+    @Test void anotherKeyInTheSameBucketIsAMiss() {
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            long key = keyInBucket(77, 0xABCDL);
+            table.store(key, Move.NONE, 0, 3, TranspositionTable.EXACT);
+            assertNotEquals(0, table.probe(key));
+            assertEquals(0, table.probe(keyInBucket(77, 0xABCEL)));
+            assertEquals(0, table.probe(keyInBucket(78, 0xABCDL)));
+            // An empty slot never passes for a hit, not even for key 0
+            assertEquals(0, table.probe(0));
+        }
+    }
+
+    @Test void shallowAndOldEntriesAreReplacedFirst() {
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            long[] keys = new long[7];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keyInBucket(5, i + 1);
+            }
+            int[] depths = {5, 2, 9, 7};
+            for (int i = 0; i < 4; i++) {
+                table.store(keys[i], Move.NONE, 0, depths[i], TranspositionTable.EXACT);
+            }
+            // The bucket is full: the shallowest entry goes
+            table.store(keys[4], Move.NONE, 0, 3, TranspositionTable.EXACT);
+            assertEquals(0, table.probe(keys[1]));
+            assertPresent(table, keys[0], keys[2], keys[3], keys[4]);
+
+            // Entries of an earlier search count as shallower than any from this one
+            table.newSearch();
+            table.store(keys[5], Move.NONE, 0, 1, TranspositionTable.EXACT);
+            assertEquals(0, table.probe(keys[4]));
+            table.store(keys[6], Move.NONE, 0, 1, TranspositionTable.EXACT);
+            assertEquals(0, table.probe(keys[0]));
+            assertPresent(table, keys[2], keys[3], keys[5], keys[6]);
+        }
+    }
+
+    @Test void clearEmptiesTheTable() {
+        try (TranspositionTable table = new TranspositionTable(1)) {
+            for (long key = 1; key <= 1000; key++) {
+                table.store(key * 0x9E37_79B9_7F4A_7C15L, Move.NONE, 0, 1, TranspositionTable.EXACT);
+            }
+            assertTrue(table.hashfull() > 0);
+            table.clear();
+            assertEquals(0, table.hashfull());
+            for (long key = 1; key <= 1000; key++) {
+                assertEquals(0, table.probe(key * 0x9E37_79B9_7F4A_7C15L));
+            }
+        }
+    }
+
+    private static void assertPresent(TranspositionTable table, long... keys) {
+        for (long key : keys) {
+            assertNotEquals(0, table.probe(key), "key " + Long.toHexString(key));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package chess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UciEngineTest {
+
+    @Test void handshakeListsOptionsAndAnswersIsReady() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("uci");
+            assertEquals("id name ChessConsole", engine.expect("id name", 2000));
+            assertTrue(engine.expect("option name Hash", 2000).contains("type spin"));
+            engine.expect("option name Threads", 2000);
+            engine.expect("uciok", 2000);
+            engine.send("isready");
+            engine.expect("readyok", 2000);
+        }
+    }
+
+    @Test void findsTheMateAfterAPositionWithMoves() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("position startpos moves f2f3 e7e5 g2g4");
+            engine.send("go depth 3");
+            assertEquals("info", engine.expect("info depth", 5000).substring(0, 4));
+            assertEquals("bestmove d8h4", engine.expect("bestmove", 5000));
+
+            engine.send("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            engine.send("go depth 4");
+            assertTrue(engine.expect("info depth", 5000).contains("score mate 1"));
+            assertEquals("bestmove a1a8", engine.expect("bestmove", 5000));
+        }
+    }
+
+    @Test void stopEndsAnInfiniteSearchAtOnce() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("position startpos");
+            engine.send("go infinite");
+            assertNull(engine.poll("bestmove", 300), "an infinite search must wait for stop");
+            long start = System.nanoTime();
+            engine.send("stop");
+            String bestMove = engine.expect("bestmove", 2000);
+            assertTrue(System.nanoTime() - start < 1_000_000_000L, "stop took too long");
+            assertLegal(Board.START_FEN, bestMove);
+        }
+    }
+
+    @Test void anImmediateStopStillAnswersALegalMove() throws Exception {
+        try (Harness engine = new Harness()) {
+            for (int i = 0; i < 20; i++) {
+                engine.send("position startpos");
+                engine.send("go infinite");
+                engine.send("stop");
+                assertLegal(Board.START_FEN, engine.expect("bestmove", 2000));
+            }
+        }
+    }
+
+    @Test void ponderHitSwitchesToTheClock() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("setoption name Ponder value true");
+            engine.send("position startpos moves e2e4");
+            engine.send("go ponder wtime 3000 btime 3000");
+            assertNull(engine.poll("bestmove", 300), "a ponder search must wait for ponderhit");
+            engine.send("ponderhit");
+            // 3000 ms spread over 30 moves
+            engine.expect("bestmove", 2000);
+        }
+    }
+
+    @Test void clockAndOptionsLimitTheSearch() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("setoption name Hash value 8");
+            engine.send("setoption name Threads value 2");
+            engine.send("position startpos");
+            long start = System.nanoTime();
+            engine.send("go wtime 3000 btime 3000 winc 0 binc 0");
+            assertLegal(Board.START_FEN, engine.expect("bestmove", 2000));
+            assertTrue(System.nanoTime() - start < 1_500_000_000L, "the clock was not respected");
+
+            engine.send("go nodes 5000");
+            assertLegal(Board.START_FEN, engine.expect("bestmove", 5000));
+        }
+    }
+
+    @Test void matedSideHasNoBestMove() throws Exception {
+        try (Harness engine = new Harness()) {
+            engine.send("position fen rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+            engine.send("go depth 2");
+            assertEquals("bestmove 0000", engine.expect("bestmove", 2000));
+        }
+    }
+
+    @Test void timeIsSharedOverTheRemainingMoves() {
+        assertEquals(0, UciEngine.allocateTime(0, 0, 0));
+        assertEquals(100, UciEngine.allocateTime(3000, 0, 0));
+        assertEquals(1075, UciEngine.allocateTime(3000, 100, 3));
+        // Never more than is left on the clock
+        assertEquals(70, UciEngine.allocateTime(100, 1000, 1));
+    }
+
+    private static void assertLegal(String fen, String bestMove) {
+        Board board = Board.fromFen(fen);
+        String move = bestMove.split(" ")[1];
+        assertNotEquals(Move.NONE, MoveParser.parse(board, move, new int[MoveGenerator.MAX_MOVES]), bestMove);
+    }
+
+    // Runs the engine on its own thread, typing commands into its input and collecting its output lines
+    private static final class Harness implements AutoCloseable {
+        private final PipedOutputStream commands = new PipedOutputStream();
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final Thread engine;
+
+        Harness() throws IOException {
+            PipedInputStream input = new PipedInputStream(commands);
+            OutputStream output = new OutputStream() {
+                private final StringBuilder line = new StringBuilder();
+
+                @Override
+                public synchronized void write(int b) {
+                    if (b == '\n') {
+                        lines.add(line.toString().strip());
+                        line.setLength(0);
+                    } else {
+                        line.append((char) b);
+                    }
+                }
+            };
+            UciEngine uci = new UciEngine(input, new PrintStream(output, true, StandardCharsets.US_ASCII));
+            engine = Thread.ofPlatform().name("uci-test").start(uci::run);
+        }
+
+        void send(String command) throws IOException {
+            commands.write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+            commands.flush();
+        }
+
+        // The first line starting with the prefix, skipping others, or null if none comes in time
+        String poll(String prefix, long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            while (true) {
+                long left = deadline - System.nanoTime();
+                String line = left > 0 ? lines.poll(left, TimeUnit.NANOSECONDS) : null;
+                if (line == null || line.startsWith(prefix)) {
+                    return line;
+                }
+            }
+        }
+
+        String expect(String prefix, long timeoutMillis) throws InterruptedException {
+            String line = poll(prefix, timeoutMillis);
+            assertNotNull(line, "no \"" + prefix + "\" within " + timeoutMillis + " ms");
+            return line;
+        }
+
+        @Override
+        public void close() throws Exception {
+            send("quit");
+            engine.join(5000);
+            assertFalse(engine.isAlive(), "engine did not quit");
+        }
+    }
+}
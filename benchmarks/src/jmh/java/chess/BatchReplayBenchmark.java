@@ -0,0 +1,105 @@
+package chess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Batch replay of generated random games, one per line in coordinate form or as PGN; the counters give
+// games and moves per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchReplayBenchmark {
+
+    @Param({"1000"})
+    public int games;
+
+    @Param({"lines", "pgn"})
+    public String format;
+
+    private Path file;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long games;
+        public long moves;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            games = 0;
+            moves = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("games", format.equals("pgn") ? ".pgn" : ".txt");
+        Random random = new Random(42);
+        Board board = new Board();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] gameMoves = new int[160];
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            PgnWriter pgn = new PgnWriter(writer);
+            for (int game = 0; game < games; game++) {
+                board.resetBoard();
+                int count = 0;
+                while (count < gameMoves.length) {
+                    int legal = MoveGenerator.generateLegal(board, buffer);
+                    if (legal == 0) {
+                        break;
+                    }
+                    int move = buffer[random.nextInt(legal)];
+                    board.playMove(move);
+                    gameMoves[count++] = move;
+                }
+                if (format.equals("pgn")) {
+                    Map<String, String> tags = new LinkedHashMap<>();
+                    tags.put("Event", "Benchmark");
+                    tags.put("Round", Integer.toString(game + 1));
+                    tags.put("Result", "*");
+                    pgn.writeGame(tags, gameMoves, count, "*");
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        writer.write(Move.toString(gameMoves[i]));
+                        writer.write(i + 1 < count ? ' ' : '\n');
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long replay(Counters counters) throws IOException {
+        BatchReplay replay = new BatchReplay(discard);
+        replay.replay(file);
+        counters.games += replay.getGames();
+        counters.moves += replay.getPlies();
+        return replay.getPlies();
+    }
+}
@@ -0,0 +1,48 @@
+package chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FenBenchmark {
+
+    private static final String[] POSITIONS = {
+        Board.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+
+    private Board board;
+    private StringBuilder builder;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        board = new Board();
+        builder = new StringBuilder(100);
+    }
+
+    @Benchmark
+    public long loadFen() {
+        board.loadFen(POSITIONS[index++ & 3]);
+        return board.getKey();
+    }
+
+    @Benchmark
+    public int appendFen() {
+        board.loadFen(POSITIONS[index++ & 3]);
+        builder.setLength(0);
+        board.appendFen(builder);
+        return builder.length();
+    }
+}
@@ -0,0 +1,70 @@
+package chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Average time is the time to depth; the nodes counter gives nodes per second across all threads
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LazySmpBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"8"})
+    public int depth;
+
+    private Board board;
+    private TranspositionTable table;
+    private ParallelSearch search;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        board = new Board();
+        table = new TranspositionTable(256);
+        search = new ParallelSearch(board, table, threads);
+    }
+
+    // Every search starts cold so later invocations do not just read back the previous one
+    @Setup(Level.Invocation)
+    public void resetPosition() {
+        board.resetBoard();
+        table.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+        table.close();
+    }
+
+    @Benchmark
+    public int searchToDepth(Nodes counter) {
+        SearchResult result = search.search(SearchLimits.depth(depth));
+        counter.nodes += result.getNodes();
+        return result.getBestMove();
+    }
+}
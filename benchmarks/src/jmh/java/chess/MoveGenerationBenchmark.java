@@ -0,0 +1,57 @@
+package chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoveGenerationBenchmark {
+
+    private Board board;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int firstMove;
+
+    @Setup
+    public void setUp() {
+        board = new Board();
+        board.resetBoard();
+        MoveGenerator.generate(board, true, moves);
+        firstMove = moves[0];
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        return MoveGenerator.generate(board, board.isWhiteToMove(), moves);
+    }
+
+    @Benchmark
+    public long makeUnmake() {
+        board.makeMove(firstMove);
+        long key = board.getKey();
+        board.unmakeMove();
+        return key;
+    }
+
+    @Benchmark
+    public boolean checkDetection() {
+        return board.isInCheck(board.isWhiteToMove());
+    }
+
+    @Benchmark
+    public long sliderAttacks() {
+        long occupied = board.getOccupied();
+        long attacks = 0;
+        for (int square = 0; square < 64; square++) {
+            attacks ^= Attacks.queen(square, occupied);
+        }
+        return attacks;
+    }
+}
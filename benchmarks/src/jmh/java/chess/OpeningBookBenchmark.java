@@ -0,0 +1,107 @@
+package chess;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Looks up positions in a book built from random games, and measures what opening the book costs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OpeningBookBenchmark {
+
+    @Param({"20000"})
+    public int games;
+
+    private Path pgn;
+    private Path bookFile;
+    private OpeningBook book;
+    private long[] keys;
+    private int next;
+    private final int[] moves = new int[64];
+    private final int[] weights = new int[64];
+
+    @Setup
+    public void setUp() throws IOException {
+        pgn = Files.createTempFile("book", ".pgn");
+        bookFile = Files.createTempFile("book", ".bin");
+        Random random = new Random(42);
+        Board board = new Board();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] gameMoves = new int[OpeningBookBuilder.DEFAULT_MAX_PLIES];
+        keys = new long[4096];
+        try (Writer writer = Files.newBufferedWriter(pgn)) {
+            PgnWriter out = new PgnWriter(writer);
+            for (int game = 0; game < games; game++) {
+                board.resetBoard();
+                int count = 0;
+                while (count < gameMoves.length) {
+                    int move = randomLegalMove(board, random, buffer);
+                    if (move == Move.NONE) {
+                        break;
+                    }
+                    keys[random.nextInt(keys.length)] = board.getKey();
+                    board.playMove(move);
+                    gameMoves[count++] = move;
+                }
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "Benchmark");
+                tags.put("Result", "1/2-1/2");
+                out.writeGame(tags, gameMoves, count, "1/2-1/2");
+            }
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_MAX_PLIES, 1);
+        builder.addPgn(pgn);
+        builder.write(bookFile);
+        book = new OpeningBook(bookFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        book.close();
+        Files.deleteIfExists(pgn);
+        Files.deleteIfExists(bookFile);
+    }
+
+    @Benchmark
+    public int lookup() {
+        long key = keys[next++ & (keys.length - 1)];
+        return book.getMoves(key, moves, weights);
+    }
+
+    @Benchmark
+    public int openAndLookup() throws IOException {
+        try (OpeningBook opened = new OpeningBook(bookFile)) {
+            return opened.getMoves(keys[next++ & (keys.length - 1)], moves, weights);
+        }
+    }
+
+    private static int randomLegalMove(Board board, Random random, int[] buffer) {
+        boolean isWhite = board.isWhiteToMove();
+        int count = MoveGenerator.generate(board, isWhite, buffer);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            if (!board.isInCheck(isWhite)) {
+                buffer[legal++] = buffer[i];
+            }
+            board.unmakeMove();
+        }
+        return legal == 0 ? Move.NONE : buffer[random.nextInt(legal)];
+    }
+}
@@ -0,0 +1,116 @@
+package chess;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Replays a generated collection of random games; the counters give games and moves per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PgnReaderBenchmark {
+
+    @Param({"1000"})
+    public int games;
+
+    private Path file;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long games;
+        public long moves;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            games = 0;
+            moves = 0;
+        }
+    }
+
+    private static final class CountingVisitor implements PgnReader.Visitor {
+        long moves;
+
+        @Override
+        public void move(Board board, int move) {
+            moves++;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("games", ".pgn");
+        Random random = new Random(42);
+        Board board = new Board();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int[] gameMoves = new int[160];
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            PgnWriter pgn = new PgnWriter(writer);
+            for (int game = 0; game < games; game++) {
+                board.resetBoard();
+                int count = 0;
+                while (count < gameMoves.length) {
+                    int move = randomLegalMove(board, random, buffer);
+                    if (move == Move.NONE) {
+                        break;
+                    }
+                    board.playMove(move);
+                    gameMoves[count++] = move;
+                }
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "Benchmark");
+                tags.put("Round", Integer.toString(game + 1));
+                tags.put("Result", "*");
+                pgn.writeGame(tags, gameMoves, count, "*");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long replayFile(Counters counters) throws IOException {
+        CountingVisitor visitor = new CountingVisitor();
+        try (PgnReader reader = new PgnReader(file)) {
+            while (reader.readGame(visitor)) {
+                counters.games++;
+            }
+        }
+        counters.moves += visitor.moves;
+        return visitor.moves;
+    }
+
+    private static int randomLegalMove(Board board, Random random, int[] buffer) {
+        boolean isWhite = board.isWhiteToMove();
+        int count = MoveGenerator.generate(board, isWhite, buffer);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            if (!board.isInCheck(isWhite)) {
+                buffer[legal++] = buffer[i];
+            }
+            board.unmakeMove();
+        }
+        return legal == 0 ? Move.NONE : buffer[random.nextInt(legal)];
+    }
+}
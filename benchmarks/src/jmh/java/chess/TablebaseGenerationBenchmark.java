@@ -0,0 +1,38 @@
+package chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Time to build one table from scratch, including the tables it converts into, at 1 and all threads
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TablebaseGenerationBenchmark {
+
+    @Param({"KQK", "KRK", "KPK"})
+    public String table;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private TablebaseGenerator generator;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        generator = new TablebaseGenerator(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public byte[] generate() {
+        return generator.generate(table);
+    }
+}
@@ -0,0 +1,93 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Probe latency over random king and rook, king and queen and king and pawn positions
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TablebaseProbeBenchmark {
+
+    private static final String[] PIECES = {"R", "Q", "P", "r", "q", "p"};
+
+    private Path directory;
+    private Tablebase tablebase;
+    private Board[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tablebases");
+        TablebaseGenerator generator = new TablebaseGenerator(Runtime.getRuntime().availableProcessors());
+        generator.generate("KRK");
+        generator.generate("KPK");
+        for (String name : generator.getGenerated()) {
+            TablebaseGenerator.write(directory, name, generator.generate(name));
+        }
+        tablebase = new Tablebase(directory);
+
+        Random random = new Random(42);
+        positions = new Board[1024];
+        for (int i = 0; i < positions.length; ) {
+            int whiteKing = random.nextInt(64);
+            int blackKing = random.nextInt(64);
+            int piece = 8 + random.nextInt(48);
+            if (whiteKing == blackKing || piece == whiteKing || piece == blackKing) {
+                continue;
+            }
+            char[] squares = ".".repeat(64).toCharArray();
+            squares[whiteKing] = 'K';
+            squares[blackKing] = 'k';
+            squares[piece] = PIECES[random.nextInt(PIECES.length)].charAt(0);
+            StringBuilder fen = new StringBuilder();
+            for (int rank = 7; rank >= 0; rank--) {
+                fen.append(squares, rank * 8, 8).append(rank > 0 ? "/" : " w - - 0 1");
+            }
+            for (int empty = 8; empty > 0; empty--) {
+                int at;
+                while ((at = fen.indexOf(".".repeat(empty))) >= 0) {
+                    fen.replace(at, at + empty, Integer.toString(empty));
+                }
+            }
+            Board board = Board.fromFen(fen);
+            if (!board.isInCheck(false)) {
+                positions[i++] = board;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        tablebase.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int probeWdl() {
+        return tablebase.probeWdl(positions[next++ & (positions.length - 1)]);
+    }
+
+    @Benchmark
+    public int probeDtm() {
+        return tablebase.probeDtm(positions[next++ & (positions.length - 1)]);
+    }
+}